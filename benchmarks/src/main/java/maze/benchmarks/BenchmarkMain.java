@@ -0,0 +1,39 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** The entry point of benchmarks.jar. Takes the usual JMH command
+ * line, but always adds the allocation profiler (-prof gc) and
+ * writes the results as JSON to jmh-result.json unless -rf or -rff
+ * say otherwise, so that runs can be compared.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) 
+        throws CommandLineOptionException, RunnerException, IOException{
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if(cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()
+            || cmd.shouldListResultFormats() || cmd.shouldListWithParams()){
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+            .parent(cmd)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(cmd.getResultFormat().orElse(ResultFormatType.JSON))
+            .result(cmd.getResult().orElse("jmh-result.json"))
+            .build();
+
+        new Runner(options).run();
+    }
+}
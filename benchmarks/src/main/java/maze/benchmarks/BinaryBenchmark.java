@@ -0,0 +1,71 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+
+/** Measures how long maze.Maze.fromBinary and toBinary take */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BinaryBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    /** The maze, loaded once from a generated text file */
+    private Maze maze = null;
+
+    /** The binary file read by fromBinary */
+    private Path binary = null;
+
+    /** The file written over by toBinary */
+    private Path scratch = null;
+
+    @Setup
+    public void generate() throws IOException{
+        Path text = MazeGenerator.generate(this.size, 0.3, 42);
+        this.maze = Maze.fromTxt(text.toString());
+        Files.delete(text);
+
+        this.binary = Files.createTempFile("maze", ".bin");
+        this.maze.toBinary(this.binary.toString());
+        this.scratch = Files.createTempFile("maze", ".bin");
+    }
+
+    @TearDown
+    public void delete() throws IOException{
+        Files.deleteIfExists(this.binary);
+        Files.deleteIfExists(this.scratch);
+    }
+
+    @Benchmark
+    public Maze fromBinary() throws IOException{
+        return Maze.fromBinary(this.binary.toString());
+    }
+
+    @Benchmark
+    public void toBinary() throws IOException{
+        this.maze.toBinary(this.scratch.toString());
+    }
+}
@@ -0,0 +1,70 @@
+package maze.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** Generates square maze files of a given size and wall density for
+ * the benchmarks. Walls are scattered at random, then a random
+ * staircase corridor is carved from the entrance in the top left
+ * corner to the exit in the bottom right one, so every generated
+ * maze is solvable.
+ */
+public final class MazeGenerator {
+
+    /** Not instantiable */
+    private MazeGenerator(){ }
+
+    /** Writes a new maze to a temporary file
+     * @param size: the number of rows and of columns
+     * @param density: the chance of a cell being a wall
+     * @param seed: the seed of the random generator
+     * @return The path to the file, to be deleted by the caller
+     * @throws IOException If the file cannot be written
+     */
+    public static Path generate(int size, double density, long seed) 
+        throws IOException{
+        Path path = Files.createTempFile("maze-" + size + "-", ".txt");
+        try(BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)){
+            out.write(generateText(size, density, seed));
+        }
+
+        return path;
+    }
+
+    /** Builds the text of a new maze
+     * @param size: the number of rows and of columns
+     * @param density: the chance of a cell being a wall
+     * @param seed: the seed of the random generator
+     * @return The maze in the text format read by maze.Maze.fromTxt
+     */
+    public static String generateText(int size, double density, long seed){
+        Random random = new Random(seed);
+        char[][] rows = new char[size][size];
+        for(char[] row: rows)
+            for(int x = 0; x < size; x++)
+                row[x] = random.nextDouble() < density? '#' : '.';
+
+        // carve the staircase, one step right or down at a time
+        int x = 0;
+        int y = 0;
+        while(x < size - 1 || y < size - 1){
+            if(y == size - 1 || (x < size - 1 && random.nextBoolean()))
+                x++;
+            else
+                y++;
+            rows[y][x] = '.';
+        }
+        rows[0][0] = 'e';
+        rows[size - 1][size - 1] = 'x';
+
+        StringBuilder txt = new StringBuilder((size + 1) * size);
+        for(char[] row: rows)
+            txt.append(row).append('\n');
+
+        return txt.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.Tile;
+import maze.routing.BreadthFirstSolver;
+import maze.routing.ParallelBreadthFirstSolver;
+
+/** Measures how the parallel breadth first solver scales with its
+ * thread count. The sequential solver is measured on the same maze
+ * as the baseline, so the speedup at n threads is the sequential
+ * score divided by the parallel score for n.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelBfsBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"2000", "5000"})
+    public int size;
+
+    /** The number of threads of the parallel solver */
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    /** The maze, parsed once per trial */
+    private Maze maze = null;
+
+    @Setup
+    public void load() throws IOException{
+        Path file = MazeGenerator.generate(this.size, 0.3, 42);
+        try{
+            this.maze = Maze.fromTxt(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public List<Tile> parallel(){
+        return new ParallelBreadthFirstSolver(this.maze, this.threads).findRoute();
+    }
+
+    @Benchmark
+    public List<Tile> sequential(){
+        return new BreadthFirstSolver(this.maze).findRoute();
+    }
+}
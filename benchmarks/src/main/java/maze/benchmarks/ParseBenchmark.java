@@ -0,0 +1,61 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+
+/** Measures how long maze.Maze.fromTxt takes to load a maze file */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    /** The chance of a cell being a wall */
+    @Param({"0.1", "0.3"})
+    public double density;
+
+    /** The number of parsing threads, 1 for the sequential scan */
+    @Param({"1", "4"})
+    public int threads;
+
+    /** The generated maze file */
+    private Path file = null;
+
+    @Setup
+    public void generate() throws IOException{
+        this.file = MazeGenerator.generate(this.size, this.density, 42);
+    }
+
+    @TearDown
+    public void delete() throws IOException{
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public Maze fromTxt() throws IOException{
+        return Maze.fromTxt(this.file.toString(), this.threads);
+    }
+}
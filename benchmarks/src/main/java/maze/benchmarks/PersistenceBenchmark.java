@@ -0,0 +1,75 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.routing.RouteFinder;
+
+/** Measures a save and load round trip of a RouteFinder that has
+ * stopped halfway through its search
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    /** The chance of a cell being a wall */
+    @Param({"0.1", "0.3"})
+    public double density;
+
+    /** The maze file the RouteFinder was built from */
+    private Path mazeFile = null;
+
+    /** The file the RouteFinder is saved to */
+    private Path routeFile = null;
+
+    /** A RouteFinder stopped halfway through */
+    private RouteFinder rf = null;
+
+    @Setup
+    public void load() throws IOException{
+        this.mazeFile = MazeGenerator.generate(this.size, this.density, 42);
+        this.routeFile = Files.createTempFile("maze-" + this.size + "-", ".route");
+        Maze m = Maze.fromTxt(this.mazeFile.toString());
+
+        RouteFinder full = new RouteFinder(m);
+        long steps = full.solve().getSteps();
+        this.rf = new RouteFinder(m);
+        this.rf.runToCompletion(steps / 2);
+    }
+
+    @TearDown
+    public void delete() throws IOException{
+        Files.deleteIfExists(this.mazeFile);
+        Files.deleteIfExists(this.routeFile);
+    }
+
+    @Benchmark
+    public RouteFinder roundTrip() throws IOException{
+        this.rf.save(this.routeFile.toString());
+        return RouteFinder.load(this.routeFile.toString(), this.rf.getMaze());
+    }
+}
@@ -0,0 +1,72 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.routing.RouteFinder;
+
+/** Measures the string renderers of a maze and of a RouteFinder
+ * that has stopped halfway through its search
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RenderBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    /** The chance of a cell being a wall */
+    @Param({"0.1", "0.3"})
+    public double density;
+
+    /** The maze, parsed once per trial */
+    private Maze maze = null;
+
+    /** A RouteFinder stopped halfway through */
+    private RouteFinder rf = null;
+
+    @Setup
+    public void load() throws IOException{
+        Path file = MazeGenerator.generate(this.size, this.density, 42);
+        try{
+            this.maze = Maze.fromTxt(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+
+        RouteFinder full = new RouteFinder(this.maze);
+        long steps = full.solve().getSteps();
+        this.rf = new RouteFinder(this.maze);
+        this.rf.runToCompletion(steps / 2);
+    }
+
+    @Benchmark
+    public String maze(){
+        return this.maze.toString();
+    }
+
+    @Benchmark
+    public String routeFinder(){
+        return this.rf.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.Tile;
+import maze.routing.SolverType;
+
+/** Measures the latency of a full solve, from a fresh solver to
+ * the route, for every solver on the same mazes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SolveBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    /** The chance of a cell being a wall */
+    @Param({"0.1", "0.3"})
+    public double density;
+
+    /** The solver to measure; every kind unless -p says otherwise */
+    @Param
+    public SolverType solver;
+
+    /** The maze, parsed once per trial */
+    private Maze maze = null;
+
+    @Setup
+    public void load() throws IOException{
+        Path file = MazeGenerator.generate(this.size, this.density, 42);
+        try{
+            this.maze = Maze.fromTxt(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public List<Tile> findRoute(){
+        return this.solver.create(this.maze).findRoute();
+    }
+}
@@ -0,0 +1,68 @@
+package maze.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.routing.RouteFinder;
+
+/** Measures the cost of a single maze.routing.RouteFinder step.
+ * With constant time tile lookups it should stay flat as the
+ * grid grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StepBenchmark {
+
+    /** The number of rows and of columns */
+    @Param({"100", "1000", "4000"})
+    public int size;
+
+    /** The maze, parsed once per trial */
+    private Maze maze = null;
+
+    /** The RouteFinder being stepped */
+    private RouteFinder rf = null;
+
+    @Setup
+    public void load() throws IOException{
+        Path file = MazeGenerator.generate(this.size, 0.3, 42);
+        try{
+            this.maze = Maze.fromTxt(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void restart(){
+        this.rf = new RouteFinder(this.maze);
+    }
+
+    @Benchmark
+    public boolean step(){
+        // start over once the exit is reached so every call steps
+        if(this.rf.isFinished())
+            this.rf = new RouteFinder(this.maze);
+        return this.rf.step();
+    }
+}
@@ -6,6 +6,7 @@ import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.Group;
 import javafx.scene.control.Button;
+import javafx.scene.control.Slider;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.BorderPane;
@@ -22,6 +23,7 @@ import javafx.scene.control.ContentDisplay;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.input.KeyCode;
 
+import maze.visualisation.SolveWorker;
 import maze.visualisation.VisualMaze;
 import maze.*;
 import maze.routing.*;
@@ -44,6 +46,17 @@ public class MazeApplication extends Application {
     /** The VisualMaze object to be displayed */
     private VisualMaze vMaze = null;
 
+    /** The worker that runs the solver of vMaze in the background */
+    private SolveWorker worker = null;
+
+    /** The button that runs and pauses the worker */
+    private Button runButton = null;
+
+    /** The slider for the speed of the worker, as the base 10
+     * logarithm of the steps per second; the far right is full speed
+     */
+    private Slider speedSlider = null;
+
     /** The VBox that contains the output of VisualMaze */
     private VBox tileBox = null;
 
@@ -57,6 +70,11 @@ public class MazeApplication extends Application {
      */
     private Label inputMessage = null;
 
+    /** The right end of the speed slider, which runs the solver
+     * at full speed
+     */
+    private static final double MAX_SPEED = 7;
+
     /** The CSS style to be applied to all buttons */
     private static String buttonStyle = 
         "-fx-font-size: 2em; " + 
@@ -139,10 +157,24 @@ public class MazeApplication extends Application {
         mainMessage.setTextFill(Color.web("#c4bd52"));
         mainMessage.setContentDisplay(ContentDisplay.CENTER);
 
+        // create the run button and the speed slider
+        runButton = new Button("Run");
+        runButton.setMinHeight(50);
+        runButton.setMinWidth(80);
+        runButton.setStyle(buttonStyle);
+        speedSlider = new Slider(0, MAX_SPEED, MAX_SPEED);
+        speedSlider.setMaxWidth(120);
+
+        // group the controls together
+        HBox controlBox = new HBox();
+        controlBox.setAlignment(Pos.CENTER);
+        controlBox.setSpacing(10);
+        controlBox.getChildren().addAll(speedSlider, runButton, stepButton);
+
         // and organise them on a borderpane
         BorderPane stepBox = new BorderPane();
         stepBox.setPadding(new Insets(10.0));
-        stepBox.setRight(stepButton);
+        stepBox.setRight(controlBox);
         stepBox.setLeft(mainMessage);
 
         // load all containers on a root container
@@ -162,6 +194,8 @@ public class MazeApplication extends Application {
 
         // set the button events
         stepButton.setOnAction(e->{nextStep();});
+        runButton.setOnAction(e->{toggleRun();});
+        speedSlider.valueProperty().addListener((o, old, v)->{setSpeed();});
         loadMazeButton.setOnAction(e->{requestInput(RequestType.MAZE);});
         loadRouteButton.setOnAction(e->{requestInput(RequestType.LROUTE);});
         saveRouteButton.setOnAction(e->{requestInput(RequestType.SROUTE);});
@@ -260,6 +294,7 @@ public class MazeApplication extends Application {
                 tileBox.getChildren().remove(vMaze.getTiles());
             vMaze = newVMaze;
             tileBox.getChildren().add(vMaze.getTiles());
+            newWorker();
 
             mainMessage.setText("Successfully loaded!");
             stage.setScene(main);
@@ -277,6 +312,8 @@ public class MazeApplication extends Application {
         if(vMaze == null)
             inputMessage.setText("You must load a maze first!");
         else try{
+            // the route must not change while it is written
+            worker.pause();
             vMaze.getRouteFinder().save(path);
 
             mainMessage.setText("Successfully saved!");
@@ -287,7 +324,7 @@ public class MazeApplication extends Application {
     }
 
     /** Loads a RouteFinder to the application
-     * @param path: the path to the RouteFinder serialised object
+     * @param path: the path to the saved RouteFinder
      */
     private void loadRoute(String path){
         try{
@@ -297,6 +334,7 @@ public class MazeApplication extends Application {
                 tileBox.getChildren().remove(vMaze.getTiles());
             vMaze = newVMaze;
             tileBox.getChildren().add(vMaze.getTiles());
+            newWorker();
 
             mainMessage.setText("Successfully loaded!");
             stage.setScene(main);
@@ -313,9 +351,13 @@ public class MazeApplication extends Application {
         if(vMaze == null)
             mainMessage.setText("You must load a maze first!");
         else try{
+            // a click steps by hand, so the worker stops first
+            if(worker.isRunning()){
+                worker.pause();
+                runButton.setText("Run");
+            }
+            // the tiles change in place, the scene stays the same
             vMaze.step();
-            tileBox.getChildren().clear();
-            tileBox.getChildren().add(vMaze.getTiles());
 
             mainMessage.setText("You took one step.");
             if(vMaze.getRouteFinder().isFinished())
@@ -325,6 +367,61 @@ public class MazeApplication extends Application {
         }
     }
 
+    /** Runs the solver in the background, or pauses it */
+    private void toggleRun(){
+        if(vMaze == null){
+            mainMessage.setText("You must load a maze first!");
+            return;
+        }
+        if(worker.isRunning()){
+            worker.pause();
+            runButton.setText("Run");
+        }
+        else{
+            worker.play();
+            if(worker.isRunning())
+                runButton.setText("Pause");
+            else
+                showProgress(worker);
+        }
+    }
+
+    /** Passes the speed on the slider to the worker */
+    private void setSpeed(){
+        if(worker == null)
+            return;
+        double v = speedSlider.getValue();
+        worker.setSpeed(v >= MAX_SPEED? Double.POSITIVE_INFINITY : Math.pow(10, v));
+    }
+
+    /** Replaces the worker with one for the VisualMaze on display */
+    private void newWorker(){
+        if(worker != null)
+            worker.pause();
+        worker = new SolveWorker(vMaze, w->{showProgress(w);});
+        setSpeed();
+        runButton.setText("Run");
+    }
+
+    /** Shows the progress of the worker after a frame
+     * @param w: the worker that drew the frame
+     */
+    private void showProgress(SolveWorker w){
+        // a frame may still arrive from a replaced worker
+        if(w != worker)
+            return;
+        if(w.getOutcome() == SolveResult.Outcome.FOUND)
+            mainMessage.setText("You reached the end!");
+        else if(w.getOutcome() == SolveResult.Outcome.NO_ROUTE)
+            mainMessage.setText("Maze is unsolvable.");
+        else if(w.isRunning())
+            mainMessage.setText("Steps taken: " + w.getSteps());
+        else
+            mainMessage.setText("Paused after " + w.getSteps() + " steps.");
+        if(!w.isRunning())
+            runButton.setText("Run");
+    }
+
     /** Saves the path input for further parsing */
     private void submitInput(String txt){
         switch(inputType){
@@ -348,7 +445,7 @@ public class MazeApplication extends Application {
 
     /** The inner enum that specifies possible user request types.
      * MAZE loads a Maze from text, LROUTE loads a RouteFinder
-     * from an object file, SROUTE saves a RouteFinder to an object
+     * from a route file, SROUTE saves a RouteFinder to a route
      * file.
      */
     private enum RequestType{
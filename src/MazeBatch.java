@@ -0,0 +1,119 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import maze.routing.RouteCache;
+import maze.routing.SolverType;
+import maze.service.BatchSolver;
+import maze.service.BatchReport;
+import maze.service.MazeCache;
+
+/** Solves every maze of a directory or manifest without a GUI.
+ * Usage: MazeBatch <directory|manifest> [--solver name]
+ *        [--threads n] [--virtual] [--cache-mb n]
+ *        [--route-cache-mb n] [--spill dir] [--out file]
+ * With --cache-mb, mazes are parsed through a cache of that many
+ * megabytes, so a file listed more than once is parsed once.
+ * With --route-cache-mb, routes are kept in a cache of that many
+ * megabytes, so a maze solved once is not searched again; with
+ * --spill as well, routes evicted from it are written to the
+ * given directory and stay cached between runs.
+ * One JSON line per maze goes to the output (standard output by
+ * default) and the totals go to standard error.
+ */
+public class MazeBatch {
+    public static void main(String args[]) {
+        if(args.length == 0){
+            usage();
+            return;
+        }
+
+        SolverType solver = SolverType.BFS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtual = false;
+        MazeCache cache = null;
+        long routeBudget = -1;
+        String spill = null;
+        String out = null;
+        try{
+            for(int i = 1; i < args.length; i++){
+                switch(args[i]){
+                    case "--solver":
+                        solver = SolverType.fromName(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--virtual":
+                        virtual = true;
+                        break;
+                    case "--cache-mb":
+                        cache = new MazeCache(Long.parseLong(args[++i]) << 20);
+                        break;
+                    case "--route-cache-mb":
+                        routeBudget = Long.parseLong(args[++i]) << 20;
+                        break;
+                    case "--spill":
+                        spill = args[++i];
+                        break;
+                    case "--out":
+                        out = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e){
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        try{
+            RouteCache routes = null;
+            if(routeBudget >= 0 || spill != null)
+                routes = new RouteCache(Math.max(routeBudget, 0), 
+                    spill == null? null : Paths.get(spill));
+            List<Path> files = BatchSolver.listInput(Paths.get(args[0]));
+            Writer writer = out == null?
+                new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) :
+                Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+            BatchReport report;
+            try{
+                report = new BatchSolver(solver, threads, virtual, cache, routes)
+                    .run(files, writer);
+            } finally {
+                if(out != null)
+                    writer.close();
+            }
+            System.err.println(report);
+            if(cache != null)
+                System.err.println(cache);
+            if(routes != null){
+                routes.flush();
+                System.err.println(routes);
+            }
+        } catch (IOException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e){
+            System.err.println("Interrupted.");
+            System.exit(1);
+        }
+    }
+
+    /** Prints how to call the program */
+    private static void usage(){
+        System.err.println("Usage: MazeBatch <directory|manifest> [--solver name] " + 
+            "[--threads n] [--virtual] [--cache-mb n] [--route-cache-mb n] [--spill dir] " + 
+            "[--out file]");
+        System.err.println("Solvers: dfs, bfs, astar, jps, bidirectional, parallel-bfs");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,43 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import maze.*;
+
+/** Converts maze files between the text format and the binary one.
+ * Usage: MazeConverter <input> <output>
+ * A .txt input is written out as a binary maze; any other input is
+ * read as a binary maze and written out as text.
+ */
+public class MazeConverter {
+    public static void main(String args[]) {
+        if(args.length != 2){
+            System.out.println("Usage: MazeConverter <input> <output>");
+            System.exit(2);
+        }
+
+        try{
+            long start = System.nanoTime();
+            if(args[0].endsWith(".txt")){
+                Maze maze = Maze.fromTxt(args[0]);
+                maze.toBinary(args[1]);
+            }
+            else{
+                Maze maze = Maze.fromBinary(args[0]);
+                Files.write(Paths.get(args[1]), 
+                    maze.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+
+            System.out.println(
+                "Converted " + args[0] + " to " + args[1] + " in " + 
+                (System.nanoTime() - start) / 1000000 + " ms.");
+        } catch (InvalidMazeException e){
+            System.out.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e){
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
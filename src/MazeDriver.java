@@ -25,8 +25,7 @@ public class MazeDriver {
             // System.out.println(maze.getTileLocation(maze.getExit()).toString());
             
             RouteFinder rf = new RouteFinder(maze);
-            for(int i = 0; i < 50; i++)
-                rf.step();
+            System.out.println(rf.runToCompletion(50));
             System.out.println(rf.toString());
 
             // rf.save("rf.obj");
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import maze.*;
+import maze.routing.RouteFinder;
+import maze.visualisation.MazePng;
+
+/** Draws a maze, and optionally its route, to a PNG image without a
+ * display or JavaFX.
+ * Usage: MazeRender <maze> <output.png> [--scale n] [--solve]
+ *        [--route file]
+ * A .txt maze is read as text, anything else as a binary maze.
+ * --scale sets the pixels per cell (4 by default), --solve runs the
+ * depth first search to the end first, and --route draws the state
+ * of a route saved for the maze instead.
+ */
+public class MazeRender {
+    public static void main(String args[]) {
+        if(args.length < 2){
+            usage();
+            return;
+        }
+
+        int scale = 4;
+        boolean solve = false;
+        String route = null;
+        try{
+            for(int i = 2; i < args.length; i++){
+                switch(args[i]){
+                    case "--scale":
+                        scale = Integer.parseInt(args[++i]);
+                        break;
+                    case "--solve":
+                        solve = true;
+                        break;
+                    case "--route":
+                        route = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e){
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        try{
+            long start = System.nanoTime();
+            Maze maze = args[0].endsWith(".txt")? 
+                Maze.fromTxt(args[0]) : Maze.fromBinary(args[0]);
+            RouteFinder rf = route == null? 
+                new RouteFinder(maze) : RouteFinder.load(route, maze);
+            if(solve)
+                rf.solve();
+            MazePng.write(rf, Paths.get(args[1]), scale);
+
+            System.out.println(
+                "Rendered " + args[0] + " to " + args[1] + " in " + 
+                (System.nanoTime() - start) / 1000000 + " ms.");
+        } catch (InvalidMazeException e){
+            System.out.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException | IllegalArgumentException e){
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Prints how to call the program */
+    private static void usage(){
+        System.err.println("Usage: MazeRender <maze> <output.png> [--scale n] [--solve] " + 
+            "[--route file]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import maze.service.SolveServer;
+
+/** Runs the maze solving HTTP server on the loopback interface.
+ * Usage: MazeServer [--port n] [--threads n] [--queue n]
+ * Send a maze with e.g.
+ *   curl --data-binary @maze.txt localhost:8080/solve?solver=astar
+ */
+public class MazeServer {
+    public static void main(String args[]) {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 256;
+        try{
+            for(int i = 0; i < args.length; i++){
+                switch(args[i]){
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--queue":
+                        queue = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e){
+            System.err.println(e.getMessage());
+            System.err.println("Usage: MazeServer [--port n] [--threads n] [--queue n]");
+            System.exit(2);
+        }
+
+        try{
+            SolveServer server = new SolveServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads, queue);
+            server.start();
+            System.out.println("Listening on http://localhost:" + server.getPort() + "/solve");
+        } catch (IOException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
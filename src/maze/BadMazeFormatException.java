@@ -19,4 +19,12 @@ public class BadMazeFormatException extends InvalidMazeException {
             "Invalid characters appear in the input."
         );
     }
+
+    /** Exception constructor for input that is not readable as a
+     * maze at all, e.g. a damaged binary maze file
+     * @param reason: what is wrong with the input
+     */
+    BadMazeFormatException(String reason){
+        super("Unable to create maze. " + reason);
+    }
 }
@@ -0,0 +1,149 @@
+package maze;
+
+import java.nio.ByteBuffer;
+
+/** The connected components of the open cells of a maze, found by
+ * union-find in one pass over the grid. Cells are scanned row by
+ * row, as they lie in maze.PackedGrid, and each open cell is joined
+ * to its open neighbours to the west and to the north, the only
+ * ones already scanned, unless the north west cell is open as
+ * well, which means the two are joined already. A run of open
+ * cells along a row hangs off the root of its first cell, so the
+ * trees stay shallow and the whole pass reads the grid a byte at a
+ * time and the parent array front to back.
+ * The parent array is needed only while the pass runs. Unless the
+ * labels are asked for, all that is kept is the number of
+ * components and whether the two cells of interest, normally the
+ * entrance and the exit, are joined. Otherwise a last pass points
+ * every cell straight at its root, after which two cells are
+ * connected exactly when their labels are equal, at 4 bytes a cell.
+ * @see maze.Maze#isSolvable
+ */
+final class Connectivity {
+
+    /** The label of a wall cell */
+    private static final int WALL = -1;
+
+    /** The root of the component of every cell, or WALL, or null
+     * if the labels were not kept
+     */
+    private final int[] labels;
+
+    /** The number of components */
+    private final int components;
+
+    /** Whether the two cells given to the constructor are joined */
+    private final boolean joined;
+
+    /** The constructor finds the components of a grid
+     * @param cells: the tile types of the maze
+     * @param width: the number of tiles in a row
+     * @param from: the index of a cell whose connection to the
+     * other is remembered
+     * @param to: the index of the other cell
+     * @param keepLabels: whether to keep a label for every cell,
+     * so that connected can be asked about any two cells
+     */
+    Connectivity(PackedGrid cells, int width, int from, int to, boolean keepLabels){
+        int size = cells.size();
+        int[] parent = new int[size];
+        ByteBuffer packed = cells.bytes();
+        int wall = Tile.Type.WALL.ordinal();
+        int roots = 0;
+        int bits = 0;
+
+        for(int row = 0, i = 0; i < size; row++){
+            for(int col = 0; col < width; col++, i++){
+                // one byte holds the next four cells
+                if((i & 3) == 0)
+                    bits = packed.get(i >> 2);
+                if((bits >> ((i & 3) << 1) & 3) == wall){
+                    parent[i] = WALL;
+                    continue;
+                }
+
+                // join the run to the west, or start a new component
+                boolean west = col > 0 && parent[i - 1] != WALL;
+                if(west)
+                    parent[i] = parent[i - 1];
+                else{
+                    parent[i] = i;
+                    roots++;
+                }
+
+                // with the north west cell open too, west and north
+                // were already joined on the row above
+                if(row > 0 && parent[i - width] != WALL
+                    && !(west && parent[i - width - 1] != WALL)){
+                    int a = find(parent, i);
+                    int b = find(parent, i - width);
+                    if(a != b){
+                        // the younger root goes under the older one
+                        if(a < b)
+                            parent[b] = a;
+                        else
+                            parent[a] = b;
+                        roots--;
+                    }
+                }
+            }
+        }
+
+        this.components = roots;
+        this.joined = parent[from] != WALL && parent[to] != WALL 
+            && find(parent, from) == find(parent, to);
+        if(!keepLabels){
+            // the parent array goes with the constructor
+            this.labels = null;
+            return;
+        }
+
+        // roots come before their cells, so one pass flattens all
+        for(int i = 0; i < size; i++)
+            if(parent[i] != WALL)
+                parent[i] = parent[parent[i]];
+        this.labels = parent;
+    }
+
+    /** Finds the root of a cell, halving the path on the way
+     * @param parent: the parent of every cell
+     * @param i: the cell, which must be open
+     * @return The root of its tree
+     */
+    private static int find(int[] parent, int i){
+        while(parent[i] != i){
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Checks whether two cells are in the same component. Only
+     * for a Connectivity that kept its labels.
+     * @param a: the index of a cell
+     * @param b: the index of another cell
+     * @return True if both are open and a route joins them
+     */
+    boolean connected(int a, int b){
+        return this.labels[a] != WALL && this.labels[a] == this.labels[b];
+    }
+
+    /** Getter for whether the two cells given to the constructor
+     * are open and joined by a route
+     */
+    boolean isJoined(){
+        return this.joined;
+    }
+
+    /** Getter for the number of components of open cells */
+    int getComponentCount(){
+        return this.components;
+    }
+
+    /** Getter for the memory held by the labels, 4 bytes a cell,
+     * or 0 if they were not kept
+     */
+    long getBytes(){
+        return this.labels == null? 0 : 4L * this.labels.length;
+    }
+}
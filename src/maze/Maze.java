@@ -1,93 +1,202 @@
 package maze;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.ArrayList;
-
-/** Class that describes a Maze object */
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/** Class that describes a Maze object. The tile types are kept
+ * in a packed grid and maze.Tile objects are only created as
+ * lightweight views when they are asked for.
+ * A maze cannot change once it is loaded: all the
+ * progress of a search lives in the maze.routing.RouteFinder.
+ * One parsed maze can therefore be cached and shared by any
+ * number of RouteFinders, on any number of threads.
+ * @see maze.PackedGrid
+ */
 public class Maze implements Serializable{
 
-    /** Specifies the unique entrance point of the maze */
-    private Tile entrance = null;
+    /** Specifies the cell index of the unique entrance point of
+     * the maze
+     */
+    private final int entrance;
+
+    /** Specifies the cell index of the unique exit point of the
+     * maze
+     */
+    private final int exit;
+
+    /** The number of tiles in a row */
+    private final int width;
+
+    /** The number of rows */
+    private final int height;
 
-    /** Specifies the unique exit point of the maze */
-    private Tile exit = null;
+    /** The tile types, two bits per cell, indexed row by row
+     * from the top left corner. Never written after construction.
+     */
+    private final PackedGrid cells;
 
-    /** A 2D List that holds the maze Tiles */
-    private List<List<Tile>> tiles = 
-        new ArrayList<List<Tile>>();
+    /** The absolute path of the file the maze was loaded from, or
+     * null if it was not loaded from a file
+     */
+    private final String source;
 
-    /** The constructor is only used for private instantiation */
-    private Maze(){ }
+    /** The content hash, or 0 until it is first asked for. Like
+     * String.hashCode, racing threads at worst both work it out.
+     */
+    private transient volatile long contentHash = 0;
+
+    /** Whether the entrance and the exit are joined, and the
+     * number of components, or null until they are first asked for
+     */
+    private transient volatile Connectivity connectivity = null;
+
+    /** The component of every cell, or null until areConnected is
+     * first called
+     */
+    private transient volatile Connectivity labels = null;
+
+    /** The constructor is only used for private instantiation
+     * @param widthIn: the number of tiles in a row
+     * @param heightIn: the number of rows
+     * @param cellsIn: the complete grid of tile types
+     * @param entranceIn: the index of the entrance cell
+     * @param exitIn: the index of the exit cell
+     * @param sourceIn: the absolute path of the file the maze was
+     * loaded from, or null
+     */
+    private Maze(int widthIn, int heightIn, PackedGrid cellsIn, 
+        int entranceIn, int exitIn, String sourceIn){
+        this.width = widthIn;
+        this.height = heightIn;
+        this.cells = cellsIn;
+        this.entrance = entranceIn;
+        this.exit = exitIn;
+        this.source = sourceIn;
+    }
 
-    /** Loads a new Maze from the given file. Uses a 
-     * java.io.BufferedReader with java.io.FileReader to read 
-     * the file and constructs the maze top to bottom, left to 
-     * right: line becomes row, character becomes tile.
+    /** Loads a new Maze from the given file. The file is memory
+     * mapped and its bytes are scanned once, top to bottom, left
+     * to right: line becomes row, character becomes tile. Tile
+     * types go straight into the packed grid, and ragged rows,
+     * bad characters, the entrance and the exit are all found in
+     * that same pass.
      * @param path: the path to the relevant file
      * @return Returns the new Maze object
      * @throws maze.InvalidMazeException Specifies wrong input
      * format, e.g. multiple exits or wrong characters
      * @throws IOException If the file is unreadable
      * @see maze.InvalidMazeException
+     * @see maze.MazeParser
      * @see maze.Tile
      */
     public static Maze fromTxt (String path) 
         throws InvalidMazeException, IOException{
-        // initialise the BufferedReader
-        BufferedReader breader = new BufferedReader(
-            new FileReader(path)
-        );
-        // if successful, create a new maze
-        Maze newMaze = new Maze();
-
-        // and read the file line by line
-        String line = breader.readLine();
-        while(line != null){
-            // create a new row to be populated with each char
-            List<Tile> tileRow = new ArrayList<Tile>();
-            char[] chars = line.toCharArray();
-
-            for(char c: chars){
-                // parse the char to a Tile, then add to row
-                Tile newTile = Tile.fromChar(c);
-                tileRow.add(newTile);
-            }
+        return MazeParser.parse(Paths.get(path));
+    }
 
-            // if row length is inconsistent, throw exception
-            if(newMaze.tiles.size() > 0 && newMaze.tiles.get(0).size() != tileRow.size())
-                throw new RaggedMazeException();
+    /** Loads a new Maze from the given file, parsing it on several
+     * threads. The file is split at row boundaries into chunks that
+     * are scanned in parallel straight into their own slice of the
+     * grid; the chunks' findings are then merged, so the maze and
+     * any exception are the same as those of fromTxt(path).
+     * @param path: the path to the relevant file
+     * @param threads: the number of threads to parse with; 1 or
+     * less parses on the calling thread
+     * @return Returns the new Maze object
+     * @throws maze.InvalidMazeException Specifies wrong input
+     * format, e.g. multiple exits or wrong characters
+     * @throws IOException If the file is unreadable
+     * @see maze.Maze#fromTxt(String)
+     */
+    public static Maze fromTxt (String path, int threads)
+        throws InvalidMazeException, IOException{
+        return MazeParser.parse(Paths.get(path), threads);
+    }
 
-            // if all checks passed, add the row to the matrix
-            newMaze.tiles.add(tileRow);
+    /** Creates a new Maze from text held in memory, e.g. the body
+     * of a request, in the same format and with the same checks as
+     * fromTxt(path)
+     * @param text: the bytes of the maze, from their position to
+     * their limit
+     * @return Returns the new Maze object, with no source file
+     * @throws maze.InvalidMazeException Specifies wrong input
+     * format, e.g. multiple exits or wrong characters
+     * @see maze.Maze#fromTxt(String)
+     */
+    public static Maze fromTxt (ByteBuffer text) throws InvalidMazeException{
+        return MazeParser.parse(text);
+    }
 
-            // move to the next row
-            line = breader.readLine();
-        }
-        breader.close();
-
-        // set entrance and exit points
-        // this could have easily been implemented when parsing
-        // but the public tests unexpectedly impose some weird
-        // constrants on setEntrance and setExit
-        for(List<Tile> row: newMaze.getTiles())
-            for(Tile t: row){
-                if(t.getType() == Tile.Type.ENTRANCE)
-                    newMaze.setEntrance(t);
-                if(t.getType() == Tile.Type.EXIT)
-                    newMaze.setExit(t);
-            }
+    /** Loads a new Maze from a binary maze file written by
+     * toBinary. The file is memory mapped and its body becomes the
+     * grid as it is: only the header is read and the checksum
+     * verified, so loading takes little more than the I/O. The
+     * file must not be changed while the maze is in use.
+     * @param path: the path to the relevant file
+     * @return Returns the new Maze object
+     * @throws maze.InvalidMazeException If the file is not a
+     * binary maze of a known version, or it is damaged
+     * @throws IOException If the file is unreadable
+     * @see maze.MazeBinary
+     */
+    public static Maze fromBinary (String path)
+        throws InvalidMazeException, IOException{
+        return MazeBinary.read(Paths.get(path));
+    }
+
+    /** Saves the maze to a binary maze file: a short header with
+     * the size, entrance, exit and a checksum, then the grid at two
+     * bits per cell
+     * @param path: the path to the file, which is replaced if it
+     * exists
+     * @throws IOException If the file cannot be written
+     * @see maze.MazeBinary
+     */
+    public void toBinary(String path) throws IOException{
+        MazeBinary.write(this, Paths.get(path));
+    }
+
+    /** Creates a maze from a parsed grid once its entrance and
+     * exit have been checked
+     * @param width: the number of tiles in a row
+     * @param height: the number of rows
+     * @param cells: the complete grid of tile types
+     * @param entrances: the first two entrance cells met while
+     * parsing, -1 where there were fewer
+     * @param exits: the first two exit cells met while parsing,
+     * -1 where there were fewer
+     * @param source: the absolute path of the file the maze was
+     * loaded from, or null
+     * @return The new maze
+     * @throws maze.MultipleEntranceException If there is a second
+     * entrance before any second exit
+     * @throws maze.MultipleExitException If there is a second exit
+     * @throws maze.InvalidMazeException If there is no entrance or
+     * no exit
+     */
+    static Maze create(int width, int height, PackedGrid cells, 
+        int[] entrances, int[] exits, String source) throws InvalidMazeException{
+        // a duplicate that appears first in the file is the one
+        // reported
+        if(entrances[1] >= 0 && (exits[1] < 0 || entrances[1] < exits[1]))
+            throw new MultipleEntranceException();
+        if(exits[1] >= 0)
+            throw new MultipleExitException();
 
         // if there's no entrance or exit, throw exception
-        if(newMaze.getEntrance() == null)
+        if(entrances[0] < 0)
             throw new NoEntranceException();
-        if(newMaze.getExit() == null)
+        if(exits[0] < 0)
             throw new NoExitException();
 
-        return newMaze;
+        return new Maze(width, height, cells, entrances[0], exits[0], source);
     }
 
     /** Finds the nearest tile to the given one in the direction
@@ -100,34 +209,231 @@ public class Maze implements Serializable{
      * @see maze.Maze.Coordinate
      */
     public Tile getAdjacentTile(Tile t, Direction d){
-        int dx = 0;
-        int dy = 0;
-
-        if(d == Direction.NORTH)
-            dy = 1;
-        else if(d == Direction.SOUTH)
-            dy = -1;
-        else if(d == Direction.EAST)
-            dx = 1;
-        else if(d == Direction.WEST)
-            dx = -1;
+        int index = this.getAdjacentIndex(this.getIndex(t), d);
+        if(index < 0)
+            return null;
 
-        Coordinate loc = this.getTileLocation(t);
-        loc = new Coordinate(loc.getX()+dx, loc.getY()+dy);
+        return this.getTile(index);
+    }
 
-        return this.getTileAtLocation(loc);
+    /** Finds the index of the nearest cell to the given one in 
+     * the direction specified. This is the primitive counterpart
+     * of getAdjacentTile and creates no objects.
+     * @param index: the index of the initial cell
+     * @param d: the direction in which to look
+     * @return The index of the closest cell in direction d, or
+     * -1 if it would be out of bounds
+     * @see maze.Maze.Direction
+     */
+    public int getAdjacentIndex(int index, Direction d){
+        if(index < 0 || index >= this.getCellCount())
+            return -1;
+
+        // NORTH is up, i.e. one row closer to the top of the file
+        switch(d){
+            case NORTH:
+                return index >= this.width? index - this.width : -1;
+            case SOUTH:
+                return index + this.width < this.getCellCount()?
+                    index + this.width : -1;
+            case EAST:
+                return index % this.width != this.width - 1?
+                    index + 1 : -1;
+            case WEST:
+                return index % this.width != 0? index - 1 : -1;
+            default:
+                return -1;
+        }
     }
 
     /** Getter for the entrance tile of the maze */
     public Tile getEntrance(){
-        return this.entrance;
+        return this.getTile(this.entrance);
     }
 
     /** Getter for the exit tile of the maze */
     public Tile getExit(){
+        return this.getTile(this.exit);
+    }
+
+    /** Getter for the cell index of the entrance */
+    public int getEntranceIndex(){
+        return this.entrance;
+    }
+
+    /** Getter for the cell index of the exit */
+    public int getExitIndex(){
         return this.exit;
     }
 
+    /** Getter for the number of tiles in a row */
+    public int getWidth(){
+        return this.width;
+    }
+
+    /** Getter for the number of rows */
+    public int getHeight(){
+        return this.height;
+    }
+
+    /** Getter for the file the maze was loaded from
+     * @return The absolute path given to fromTxt or fromBinary, or
+     * null if the maze did not come from a file
+     */
+    public String getSource(){
+        return this.source;
+    }
+
+    /** Getter for a 64 bit hash of the size and the tiles of the
+     * maze. Two mazes with the same layout have the same hash
+     * whichever file or format they came from, so the hash can
+     * identify a maze in saved routes and caches. It takes one
+     * pass over the packed grid, the first time only.
+     * @return The hash: CRC32C of the content in the upper half,
+     * CRC32 in the lower
+     */
+    public long getContentHash(){
+        long hash = this.contentHash;
+        if(hash == 0){
+            ByteBuffer size = ByteBuffer.allocate(8);
+            size.putInt(this.width).putInt(this.height).flip();
+
+            CRC32C upper = new CRC32C();
+            upper.update(size.duplicate());
+            upper.update(this.cells.bytes());
+            CRC32 lower = new CRC32();
+            lower.update(size);
+            lower.update(this.cells.bytes());
+
+            hash = upper.getValue() << 32 | lower.getValue();
+            this.contentHash = hash;
+        }
+        return hash;
+    }
+
+    /** Checks whether any route joins the entrance to the exit,
+     * without a search. The first call finds the connected
+     * components of the maze in one pass over the grid, which
+     * costs less than a single depth first search, and needs 4
+     * bytes per cell while it runs; only the answer is kept, so
+     * every later call is O(1) and costs no memory.
+     * @return True if the exit can be reached from the entrance
+     * @see maze.Connectivity
+     */
+    public boolean isSolvable(){
+        Connectivity c = this.labels;
+        if(c != null)
+            return c.connected(this.entrance, this.exit);
+        return this.getConnectivity().isJoined();
+    }
+
+    /** Checks whether a route joins two cells. The first call
+     * labels every cell with its component and keeps the labels,
+     * 4 bytes per cell or 16 times the packed grid, so that every
+     * later call is O(1).
+     * @param from: the index of a cell, row * width + column with
+     * rows counted from the top
+     * @param to: the index of another cell
+     * @return True if both cells are open and connected
+     */
+    public boolean areConnected(int from, int to){
+        if(from < 0 || to < 0 || from >= this.getCellCount() || to >= this.getCellCount())
+            return false;
+        Connectivity c = this.labels;
+        if(c == null){
+            c = new Connectivity(this.cells, this.width, this.entrance, this.exit, true);
+            this.labels = c;
+        }
+        return c.connected(from, to);
+    }
+
+    /** Getter for the number of separate regions of open cells */
+    public int getComponentCount(){
+        Connectivity c = this.labels;
+        if(c != null)
+            return c.getComponentCount();
+        return this.getConnectivity().getComponentCount();
+    }
+
+    /** Getter for the memory the maze holds: the packed grid, and
+     * the component labels once areConnected has been called
+     * @return The size in bytes
+     */
+    public long getRetainedBytes(){
+        long bytes = this.cells.bytes().capacity();
+        Connectivity c = this.labels;
+        if(c != null)
+            bytes += c.getBytes();
+        return bytes;
+    }
+
+    /** Getter for whether the entrance and the exit are joined and
+     * the number of components, working them out the first time
+     * without keeping any labels. Like the content hash, racing
+     * threads at worst both work them out.
+     */
+    private Connectivity getConnectivity(){
+        Connectivity c = this.connectivity;
+        if(c == null){
+            c = new Connectivity(this.cells, this.width, this.entrance, this.exit, false);
+            this.connectivity = c;
+        }
+        return c;
+    }
+
+    /** Getter for the tile types as they are stored, for searches
+     * that read many cells: four cells to a byte, lowest bits
+     * first, each the ordinal of its maze.Tile.Type
+     * @return A read-only view of the (getCellCount() + 3) / 4
+     * bytes of the grid, positioned at the first one
+     */
+    public ByteBuffer getPackedCells(){
+        return this.cells.bytes();
+    }
+
+    /** Getter for the packed grid of tile types */
+    PackedGrid getGrid(){
+        return this.cells;
+    }
+
+    /** Getter for the total number of cells, i.e. the number
+     * of valid cell indices
+     */
+    public int getCellCount(){
+        return this.cells.size();
+    }
+
+    /** Getter for the type of a cell without creating a tile
+     * @param index: the index of the cell, row * width + column
+     * with rows counted from the top
+     * @return The type of the cell
+     * @see maze.Tile.Type
+     */
+    public Tile.Type getTypeAt(int index){
+        return this.cells.get(index);
+    }
+
+    /** Getter for the tile view of a cell
+     * @param index: the index of the cell, row * width + column
+     * with rows counted from the top
+     * @return A new Tile object describing the cell
+     * @see maze.Tile
+     */
+    public Tile getTile(int index){
+        return new Tile(this.cells.get(index), this, index);
+    }
+
+    /** Getter for the cell index of a given tile
+     * @param t: the tile to look up
+     * @return The index of the tile, or -1 if the tile is not
+     * in the maze
+     */
+    public int getIndex(Tile t){
+        if(t == null || t.getMaze() != this)
+            return -1;
+        return t.getIndex();
+    }
+
     /** Getter for a tile at specified coordinates
      * @param c: the relevant pair of coordinates
      * @return The tile at location (c.x, x.y), or a wall if 
@@ -137,19 +443,19 @@ public class Maze implements Serializable{
      */
     public Tile getTileAtLocation(Coordinate c){
         if(c.getX() < 0 || c.getY() < 0 || 
-            c.getY() >= this.getTiles().size() || 
-            c.getX() >= this.getTiles().get(0).size())
+            c.getY() >= this.height || c.getX() >= this.width)
             return null;
 
         // the cartesian-like structure of the maze implies
         // that a tile is not located at tiles[x][y], but rather
         // at tiles[rowCount - y - 1][x]
-        return this.getTiles().get(
-            this.getTiles().size()-c.getY()-1).get(
-                c.getX());
+        return this.getTile(
+            (this.height-c.getY()-1) * this.width + c.getX());
     }
 
-    /** Getter for the coordinates of a given tile
+    /** Getter for the coordinates of a given tile. The tile
+     * carries its own cell index, so the lookup takes constant
+     * time instead of scanning the matrix.
      * @param t: the tile for which to find coordinates
      * @return A Coordinate object with the relevant position or
      * null if the tile is not in the maze
@@ -157,63 +463,33 @@ public class Maze implements Serializable{
      * @see maze.Tile
      */
     public Coordinate getTileLocation(Tile t){
-        int y = this.getTiles().size();
-        int x = this.getTiles().get(0).size();
+        int index = this.getIndex(t);
+        if(index < 0)
+            return null;
 
-        for(int i = 0; i < y; i++)
-            for(int j = 0; j < x; j++)
-                if(this.getTiles().get(i).get(j).equals(t))
-                    // the cartesian-like structure of the maze
-                    // means tiles are not located at (x, y)
-                    // but rather (rowCount - y - 1, x)
-                    return new Coordinate(j, y-i-1);
-        
-        return null;
+        // the cartesian-like structure of the maze
+        // means tiles are not located at (x, y)
+        // but rather (rowCount - y - 1, x)
+        return new Coordinate(
+            index % this.width, this.height - index / this.width - 1);
     }
 
-    /** Getter for the tile matrix
+    /** Getter for the tile matrix. The matrix is a read-only view
+     * over the packed grid: tiles are created as they are read.
      * @see maze.Tile
      */
     public List<List<Tile>> getTiles(){
-        return this.tiles;
-    }
-
-    /** Setter for the maze entrance. The tests require it to 
-     * throw IllegalArgumentException, which is odd, considering
-     * that it's private and my code cannot pass an illegal
-     * argument to it.
-     * @param t: The tile to be set as entrance
-     * @throws maze.MultipleEntranceException If there already is
-     * an entrance
-     * @throws IllegalArgumentException If the argument is not a
-     * tile in the current maze
-    */
-    private void setEntrance(Tile t) 
-        throws MultipleEntranceException, IllegalArgumentException{
-        if(this.getEntrance() != null)
-            throw new MultipleEntranceException();
-        if(this.getTileLocation(t) == null)
-            throw new IllegalArgumentException("Tile not found in maze.");
-        this.entrance = t;
-    }
-
-    /** Setter for the maze exit. The tests require it to throw
-     * IllegalArgumentException, which is odd, considering that
-     * it's private and my code cannot pass an illegal argument
-     * to it.
-     * @param t: The tile to be set as exit
-     * @throws maze.MultipleEntranceException If there already
-     * is an entrance
-     * @throws IllegalArgumentException If the argument is not a
-     * tile in the current maze
-     */
-    private void setExit(Tile t) 
-        throws MultipleExitException, IllegalArgumentException{
-        if(this.getExit() != null)
-            throw new MultipleExitException();
-        if(this.getTileLocation(t) == null)
-            throw new IllegalArgumentException("Tile not found in maze.");
-        this.exit = t;
+        return new AbstractList<List<Tile>>(){
+            public List<Tile> get(int row){
+                if(row < 0 || row >= height)
+                    throw new IndexOutOfBoundsException("Row " + row);
+                return new TileRow(row);
+            }
+
+            public int size(){
+                return height;
+            }
+        };
     }
 
     /** Method for parsing the maze to string for printing
@@ -221,14 +497,41 @@ public class Maze implements Serializable{
      * @see maze.Tile
      */
     public String toString(){
-        String txt = "";
-        for(List<Tile> row: this.getTiles()){
-            for(Tile t: row)
-                txt += t.toString();
-            txt += "\n";
+        StringBuilder txt = new StringBuilder(
+            (this.width + 1) * this.height);
+        int index = 0;
+        for(int i = 0; i < this.height; i++){
+            for(int j = 0; j < this.width; j++)
+                txt.append(Tile.toChar(this.cells.get(index++)));
+            txt.append('\n');
+        }
+
+        return txt.toString();
+    }
+
+    /** A read-only row of the tile matrix, backed by the grid */
+    private class TileRow extends AbstractList<Tile> 
+        implements RandomAccess{
+
+        /** The index of the first cell of the row */
+        private int offset = 0;
+
+        /** The constructor sets the row to view
+         * @param row: the row index (0-indexed) (top to bottom)
+         */
+        private TileRow(int row){
+            this.offset = row * width;
         }
 
-        return txt;
+        public Tile get(int column){
+            if(column < 0 || column >= width)
+                throw new IndexOutOfBoundsException("Column " + column);
+            return getTile(this.offset + column);
+        }
+
+        public int size(){
+            return width;
+        }
     }
 
     /** The inner class that describes a pair of coordinates(x, y).
@@ -240,8 +543,8 @@ public class Maze implements Serializable{
     public class Coordinate{
 
         /** The pair of coordinates */
-        private int x = 0;
-        private int y = 0;
+        private final int x;
+        private final int y;
 
         /** The constructor sets the internal coordinates to those
          * given
@@ -0,0 +1,147 @@
+package maze;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/** The binary maze format behind maze.Maze.fromBinary and toBinary.
+ * A file is a fixed header followed by the packed grid exactly as
+ * maze.PackedGrid keeps it, two bits per cell, row by row from the
+ * top left corner. All numbers are big endian ints:
+ *
+ *   magic "MAZE", version, width, height,
+ *   entrance x, entrance y, exit x, exit y,
+ *   CRC32 of the 32 bytes before it and of the whole body
+ *
+ * Coordinates are those of maze.Maze.Coordinate. Loading maps the
+ * file and uses the mapping as the grid, so nothing is parsed and
+ * nothing is copied; the checksum is the only pass over the body.
+ * @see maze.Maze
+ * @see maze.PackedGrid
+ */
+final class MazeBinary {
+
+    /** The first four bytes of every file, "MAZE" */
+    static final int MAGIC = 0x4d415a45;
+
+    /** The version written by this class */
+    static final int VERSION = 1;
+
+    /** The number of bytes before the body */
+    static final int HEADER = 36;
+
+    /** The class only has static methods */
+    private MazeBinary(){}
+
+    /** Loads a maze from a binary file
+     * @param path: the path to the file
+     * @return The new Maze object, backed by a read-only mapping
+     * of the file
+     * @throws InvalidMazeException If the file is not a binary maze
+     * of a known version, or it is damaged
+     * @throws IOException If the file is unreadable
+     */
+    static Maze read(Path path) throws InvalidMazeException, IOException{
+        MappedByteBuffer file = null;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if(channel.size() < HEADER)
+                throw new BadMazeFormatException("The file is too short.");
+            if(channel.size() > HEADER + (Integer.MAX_VALUE / 4L + 1))
+                throw new BadMazeFormatException("The file is too long.");
+            // the mapping stays valid after the channel is closed
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if(file.getInt(0) != MAGIC)
+            throw new BadMazeFormatException("The file is not a binary maze.");
+        if(file.getInt(4) != VERSION)
+            throw new BadMazeFormatException(
+                "Unsupported binary maze version " + file.getInt(4) + ".");
+
+        int width = file.getInt(8);
+        int height = file.getInt(12);
+        long cellCount = (long)width * height;
+        if(width < 0 || height < 0 || cellCount > Integer.MAX_VALUE - 8 
+            || file.capacity() != HEADER + (cellCount + 3) / 4)
+            throw new BadMazeFormatException("The file has the wrong size.");
+
+        // the checksum covers the header up to itself and the body
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = file.duplicate();
+        checked.limit(HEADER - 4);
+        crc.update(checked);
+        ByteBuffer body = file.duplicate();
+        body.position(HEADER);
+        body = body.slice();
+        crc.update(body.duplicate());
+        if((int)crc.getValue() != file.getInt(HEADER - 4))
+            throw new BadMazeFormatException("The file is damaged.");
+
+        PackedGrid cells = PackedGrid.wrap(body, (int)cellCount);
+        int entrance = index(width, height, file.getInt(16), file.getInt(20));
+        int exit = index(width, height, file.getInt(24), file.getInt(28));
+        if(entrance < 0 || cells.code(entrance) != Tile.Type.ENTRANCE.ordinal())
+            throw new NoEntranceException();
+        if(exit < 0 || cells.code(exit) != Tile.Type.EXIT.ordinal())
+            throw new NoExitException();
+
+        return Maze.create(width, height, cells, 
+            new int[]{entrance, -1}, new int[]{exit, -1}, MazeParser.source(path));
+    }
+
+    /** Saves a maze to a binary file, replacing any file there
+     * @param maze: the maze to save
+     * @param path: the path to the file
+     * @throws IOException If the file cannot be written
+     */
+    static void write(Maze maze, Path path) throws IOException{
+        ByteBuffer body = maze.getGrid().bytes();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION)
+            .putInt(maze.getWidth()).putInt(maze.getHeight());
+        putLocation(header, maze, maze.getEntranceIndex());
+        putLocation(header, maze, maze.getExitIndex());
+
+        CRC32 crc = new CRC32();
+        header.flip();
+        crc.update(header.duplicate());
+        crc.update(body.duplicate());
+        header.limit(HEADER);
+        header.putInt(HEADER - 4, (int)crc.getValue());
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, 
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            while(header.hasRemaining())
+                channel.write(header);
+            while(body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    /** Converts a pair of coordinates to a cell index
+     * @param width: the number of tiles in a row
+     * @param height: the number of rows
+     * @param x: the column index (left to right)
+     * @param y: the row index (bottom to top)
+     * @return The cell index, or -1 if it is out of bounds
+     */
+    private static int index(int width, int height, int x, int y){
+        if(x < 0 || x >= width || y < 0 || y >= height)
+            return -1;
+        return (height - y - 1) * width + x;
+    }
+
+    /** Appends the coordinates of a cell to the header
+     * @param header: the buffer being filled
+     * @param maze: the maze the cell is in
+     * @param index: the cell index
+     */
+    private static void putLocation(ByteBuffer header, Maze maze, int index){
+        header.putInt(index % maze.getWidth())
+            .putInt(maze.getHeight() - index / maze.getWidth() - 1);
+    }
+}
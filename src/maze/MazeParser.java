@@ -0,0 +1,412 @@
+package maze;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** The parser behind maze.Maze.fromTxt. It memory maps the file and
+ * scans its bytes straight into a packed grid, without decoding
+ * characters or building a String per line. Lines end with \n,
+ * \r or \r\n, as they do for java.io.BufferedReader, and the last
+ * line does not need a terminator.
+ *
+ * Large files may also be parsed on several threads. Every row of a
+ * well formed file has the same length, so the file is cut into
+ * slices of whole rows by arithmetic alone and each slice is
+ * scanned straight into its part of the grid. Files whose rows are
+ * not all alike (ragged rows, blank lines, mixed terminators) are
+ * handed to the sequential scan, which reports them exactly as
+ * before.
+ * @see maze.Maze
+ * @see maze.PackedGrid
+ */
+final class MazeParser {
+
+    /** The largest part of the file mapped at once */
+    private static final int WINDOW = 1 << 28;
+
+    /** Files smaller than this are always parsed on one thread */
+    private static final long PARALLEL_THRESHOLD = 1 << 20;
+
+    /** The code of the maze.Tile.Type of every byte, or -1 for
+     * bytes that are not a tile
+     */
+    private static final int[] CODES = new int[256];
+
+    static {
+        Arrays.fill(CODES, -1);
+        CODES['e'] = Tile.Type.ENTRANCE.ordinal();
+        CODES['x'] = Tile.Type.EXIT.ordinal();
+        CODES['.'] = Tile.Type.CORRIDOR.ordinal();
+        CODES['#'] = Tile.Type.WALL.ordinal();
+    }
+
+    /** The grid being filled */
+    private final PackedGrid cells;
+
+    /** The first two entrance and exit cells met so far */
+    private final int[] entrances = {-1, -1};
+    private final int[] exits = {-1, -1};
+
+    /** The length of the first row, or -1 before it ends */
+    private int width = -1;
+
+    /** The number of rows completed */
+    private int height = 0;
+
+    /** The number of tiles read on the current row */
+    private int column = 0;
+
+    /** Whether the previous byte was a \r, so that a \n right
+     * after it does not end another line
+     */
+    private boolean afterReturn = false;
+
+    /** The constructor sizes the grid for the file
+     * @param capacity: an upper bound on the number of cells
+     */
+    private MazeParser(int capacity){
+        this.cells = new PackedGrid(capacity);
+    }
+
+    /** Parses a maze file
+     * @param path: the path to the file
+     * @return The new Maze object
+     * @throws InvalidMazeException If the file is not a valid maze
+     * @throws IOException If the file is unreadable
+     */
+    static Maze parse(Path path) throws InvalidMazeException, IOException{
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            return sequential(channel, source(path));
+        }
+    }
+
+    /** Parses a maze held in memory in the text format
+     * @param text: the bytes of the maze, from their position to
+     * their limit; the position is not moved
+     * @return The new Maze object
+     * @throws InvalidMazeException If the text is not a valid maze
+     */
+    static Maze parse(ByteBuffer text) throws InvalidMazeException{
+        MazeParser parser = new MazeParser(text.remaining());
+        parser.scan(text);
+        return parser.finish(null);
+    }
+
+    /** Parses a maze file on several threads
+     * @param path: the path to the file
+     * @param threads: the number of threads to use; 1 or less
+     * parses on the calling thread
+     * @return The new Maze object, the same as parse(path) gives
+     * @throws InvalidMazeException If the file is not a valid maze
+     * @throws IOException If the file is unreadable
+     */
+    static Maze parse(Path path, int threads) throws InvalidMazeException, IOException{
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if(threads <= 1 || channel.size() < PARALLEL_THRESHOLD)
+                return sequential(channel, source(path));
+            return parallel(channel, threads, source(path));
+        }
+    }
+
+    /** Scans a whole file on the calling thread
+     * @param channel: the open file
+     * @param source: the absolute path of the file
+     * @return The new Maze object
+     * @throws InvalidMazeException If the file is not a valid maze
+     * @throws IOException If the file is unreadable
+     */
+    private static Maze sequential(FileChannel channel, String source) 
+        throws InvalidMazeException, IOException{
+        long size = channel.size();
+        // every cell takes at least one byte of the file
+        MazeParser parser = new MazeParser(
+            (int)Math.min(size, Integer.MAX_VALUE - 8));
+
+        for(long pos = 0; pos < size; pos += WINDOW){
+            MappedByteBuffer window = channel.map(
+                FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+            parser.scan(window);
+        }
+
+        return parser.finish(source);
+    }
+
+    /** Scans a file in slices of whole rows on a pool of threads,
+     * falling back to the sequential scan when the rows are not
+     * all the same length
+     * @param channel: the open file
+     * @param threads: the number of threads to use
+     * @param source: the absolute path of the file
+     * @return The new Maze object
+     * @throws InvalidMazeException If the file is not a valid maze
+     * @throws IOException If the file is unreadable
+     */
+    private static Maze parallel(FileChannel channel, int threads, String source) 
+        throws InvalidMazeException, IOException{
+        long size = channel.size();
+
+        // the first line gives the width and the line terminator
+        MappedByteBuffer head = channel.map(
+            FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW, size));
+        int width = 0;
+        while(width < head.limit() && head.get(width) != '\n' && head.get(width) != '\r')
+            width++;
+        if(width == 0 || width == head.limit())
+            return sequential(channel, source);
+        byte[] terminator = head.get(width) == '\r' && width + 1 < head.limit() 
+            && head.get(width + 1) == '\n' ? new byte[]{'\r', '\n'} 
+            : new byte[]{head.get(width)};
+
+        // a file of equal rows is a whole number of lines, the last
+        // one maybe without its terminator
+        long line = width + terminator.length;
+        long rows = size / line;
+        boolean lastTerminated = size % line == 0;
+        if(!lastTerminated){
+            if(size % line != width)
+                return sequential(channel, source);
+            rows++;
+        }
+        if(rows * width > Integer.MAX_VALUE - 8 || 4 * line > WINDOW)
+            return sequential(channel, source);
+
+        // slices start on a multiple of four rows, so no two of
+        // them write the same byte of the grid
+        long perSlice = Math.min((rows + threads * 4L - 1) / (threads * 4L), WINDOW / line);
+        perSlice = Math.max(4, perSlice & ~3L);
+
+        PackedGrid cells = PackedGrid.ofSize((int)(rows * width));
+        List<Slice> slices = new ArrayList<>();
+        for(long first = 0; first < rows; first += perSlice)
+            slices.add(new Slice(channel, cells, width, terminator, (int)first, 
+                (int)Math.min(perSlice, rows - first), (int)rows, lastTerminated));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            for(Future<Slice> done : pool.invokeAll(slices))
+                done.get();
+        }
+        catch(ExecutionException e){
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IOException(e.getCause());
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        finally{
+            pool.shutdown();
+        }
+
+        // the earliest slice with a problem decides, as it would
+        // have been met first by the sequential scan
+        int[] entrances = {-1, -1};
+        int[] exits = {-1, -1};
+        for(Slice slice : slices){
+            if(slice.problem == Slice.IRREGULAR)
+                return sequential(channel, source);
+            if(slice.problem == Slice.BAD_BYTE)
+                throw new BadMazeFormatException();
+            for(int i = 0; i < 2; i++){
+                if(slice.entrances[i] >= 0)
+                    record(entrances, slice.entrances[i]);
+                if(slice.exits[i] >= 0)
+                    record(exits, slice.exits[i]);
+            }
+        }
+
+        return Maze.create(width, (int)rows, cells, entrances, exits, source);
+    }
+
+    /** Scans one mapped window of the file, or a whole maze held
+     * in memory
+     * @param window: the bytes to scan, from position to limit
+     * @throws InvalidMazeException If a bad character or a ragged
+     * row is found
+     */
+    private void scan(ByteBuffer window) throws InvalidMazeException{
+        int limit = window.limit();
+        for(int i = window.position(); i < limit; i++){
+            int b = window.get(i) & 0xff;
+
+            if(b == '\n' || b == '\r'){
+                if(!(b == '\n' && this.afterReturn))
+                    this.endRow();
+                this.afterReturn = b == '\r';
+                continue;
+            }
+            this.afterReturn = false;
+
+            int code = CODES[b];
+            if(code < 0)
+                throw new BadMazeFormatException();
+
+            int index = this.cells.size();
+            if(index == Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Maze has too many tiles.");
+            this.cells.addCode(code);
+            if(code == Tile.Type.ENTRANCE.ordinal())
+                record(this.entrances, index);
+            else if(code == Tile.Type.EXIT.ordinal())
+                record(this.exits, index);
+            this.column++;
+        }
+    }
+
+    /** Closes the current row, checking its length against the
+     * first one
+     * @throws RaggedMazeException If the lengths differ
+     */
+    private void endRow() throws RaggedMazeException{
+        if(this.height == 0)
+            this.width = this.column;
+        else if(this.column != this.width)
+            throw new RaggedMazeException();
+        this.height++;
+        this.column = 0;
+    }
+
+    /** Closes the last row if it had no line terminator and builds
+     * the maze
+     * @param source: the absolute path of the file, or null if
+     * the maze was not read from a file
+     * @return The new Maze object
+     * @throws InvalidMazeException If the last row is ragged or the
+     * entrance or exit is missing or repeated
+     */
+    private Maze finish(String source) throws InvalidMazeException{
+        if(this.column > 0)
+            this.endRow();
+        this.cells.trim();
+
+        return Maze.create(Math.max(this.width, 0), this.height, 
+            this.cells, this.entrances, this.exits, source);
+    }
+
+    /** Works out the source of a maze read from a file
+     * @param path: the path to the file
+     * @return The absolute path of the file
+     */
+    static String source(Path path){
+        return path.toAbsolutePath().toString();
+    }
+
+    /** Remembers the first two cell indices given to it
+     * @param found: a pair of indices, -1 where still empty
+     * @param index: the index to remember
+     */
+    private static void record(int[] found, int index){
+        if(found[0] < 0)
+            found[0] = index;
+        else if(found[1] < 0)
+            found[1] = index;
+    }
+
+    /** A run of whole rows of a file whose rows all have the same
+     * length, scanned by one thread of the parallel parse
+     */
+    private static final class Slice implements Callable<Slice> {
+
+        /** The kinds of problem a slice can stop at */
+        static final int NONE = 0;
+        static final int BAD_BYTE = 1;
+        static final int IRREGULAR = 2;
+
+        private final FileChannel channel;
+        private final PackedGrid cells;
+        private final int width;
+        private final byte[] terminator;
+        private final int first;
+        private final int rows;
+        private final int totalRows;
+        private final boolean lastTerminated;
+
+        /** The first problem met, one of the constants above */
+        int problem = NONE;
+
+        /** The first two entrance and exit cells of the slice */
+        final int[] entrances = {-1, -1};
+        final int[] exits = {-1, -1};
+
+        /** The constructor
+         * @param channel: the open file
+         * @param cells: the grid shared by all slices
+         * @param width: the number of tiles in a row
+         * @param terminator: the bytes ending each line
+         * @param first: the first row of the slice
+         * @param rows: the number of rows in the slice
+         * @param totalRows: the number of rows in the file
+         * @param lastTerminated: whether the last row of the file
+         * has a terminator
+         */
+        Slice(FileChannel channel, PackedGrid cells, int width, byte[] terminator, 
+            int first, int rows, int totalRows, boolean lastTerminated){
+            this.channel = channel;
+            this.cells = cells;
+            this.width = width;
+            this.terminator = terminator;
+            this.first = first;
+            this.rows = rows;
+            this.totalRows = totalRows;
+            this.lastTerminated = lastTerminated;
+        }
+
+        /** Scans the rows of the slice into the grid, stopping at the
+         * first problem
+         * @return The slice itself
+         * @throws IOException If the file cannot be mapped
+         */
+        @Override
+        public Slice call() throws IOException{
+            long line = this.width + this.terminator.length;
+            long start = this.first * line;
+            long end = Math.min(this.channel.size(), (this.first + (long)this.rows) * line);
+            MappedByteBuffer bytes = this.channel.map(
+                FileChannel.MapMode.READ_ONLY, start, end - start);
+
+            int pos = 0;
+            for(int row = this.first; row < this.first + this.rows; row++){
+                int index = row * this.width;
+                for(int col = 0; col < this.width; col++, pos++, index++){
+                    int b = bytes.get(pos) & 0xff;
+                    int code = CODES[b];
+                    if(code < 0){
+                        this.problem = b == '\n' || b == '\r' ? IRREGULAR : BAD_BYTE;
+                        return this;
+                    }
+
+                    this.cells.setCode(index, code);
+                    if(code == Tile.Type.ENTRANCE.ordinal())
+                        record(this.entrances, index);
+                    else if(code == Tile.Type.EXIT.ordinal())
+                        record(this.exits, index);
+                }
+
+                if(row == this.totalRows - 1 && !this.lastTerminated)
+                    break;
+                for(byte t : this.terminator){
+                    if(bytes.get(pos++) != t){
+                        this.problem = IRREGULAR;
+                        return this;
+                    }
+                }
+            }
+            return this;
+        }
+    }
+}
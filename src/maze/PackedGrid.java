@@ -0,0 +1,167 @@
+package maze;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A compact store for the tile types of a maze. Every cell takes
+ * two bits, so four cells share one byte. Cells are numbered row
+ * by row, top to bottom and left to right, i.e. the cell in matrix
+ * row r and column c of a maze w tiles wide has index r * w + c.
+ * The bytes sit in a ByteBuffer, so a grid may just as well be a
+ * view of a memory mapped binary maze file as an array on the heap.
+ * @see maze.Maze
+ * @see maze.Tile.Type
+ */
+class PackedGrid implements Serializable {
+
+    /** The version of the serialized form, written by writeObject */
+    private static final long serialVersionUID = 1L;
+
+    /** The tile types indexed by their two bit code */
+    private static final Tile.Type[] TYPES = Tile.Type.values();
+
+    /** The packed cells, four per byte, lowest bits first */
+    private transient ByteBuffer cells = null;
+
+    /** The number of cells held in the grid */
+    private int size = 0;
+
+    /** The constructor allocates room for the given number of
+     * cells. The grid grows by itself if more are added.
+     * @param capacity: the expected number of cells
+     */
+    PackedGrid(int capacity){
+        this.cells = ByteBuffer.allocate((Math.max(capacity, 4) + 3) / 4);
+    }
+
+    /** The constructor views the given bytes as a full grid
+     * @param cellsIn: the packed cells, which are not copied
+     * @param sizeIn: the number of cells held
+     */
+    private PackedGrid(ByteBuffer cellsIn, int sizeIn){
+        this.cells = cellsIn;
+        this.size = sizeIn;
+    }
+
+    /** Creates a grid that already holds the given number of
+     * cells, to be filled in with setCode
+     * @param size: the number of cells
+     * @return The new grid, every cell holding code 0
+     */
+    static PackedGrid ofSize(int size){
+        PackedGrid grid = new PackedGrid(size);
+        grid.size = size;
+        return grid;
+    }
+
+    /** Creates a grid backed by the given bytes, e.g. a memory
+     * mapping, without copying them
+     * @param bytes: the packed cells from index 0 of the buffer,
+     * at least (size + 3) / 4 of them
+     * @param size: the number of cells
+     * @return The new grid
+     */
+    static PackedGrid wrap(ByteBuffer bytes, int size){
+        return new PackedGrid(bytes, size);
+    }
+
+    /** Getter for the type of a cell
+     * @param index: the index of the cell
+     * @return The tile type stored at the index
+     */
+    Tile.Type get(int index){
+        return TYPES[this.code(index)];
+    }
+
+    /** Getter for the raw two bit code of a cell, i.e. the ordinal
+     * of its maze.Tile.Type
+     * @param index: the index of the cell
+     * @return A value between 0 and 3
+     */
+    int code(int index){
+        return (this.cells.get(index >> 2) >> ((index & 3) << 1)) & 3;
+    }
+
+    /** Appends a cell at the end of the grid
+     * @param t: the type of the new cell
+     */
+    void add(Tile.Type t){
+        this.addCode(t.ordinal());
+    }
+
+    /** Appends a cell at the end of the grid by its raw code
+     * @param code: the ordinal of the maze.Tile.Type of the cell
+     */
+    void addCode(int code){
+        if(this.size == this.cells.capacity() * 4L)
+            this.cells = ByteBuffer.wrap(Arrays.copyOf(this.cells.array(), 
+                (int)Math.min(this.cells.capacity() * 2L, Integer.MAX_VALUE - 8)));
+
+        int at = this.size >> 2;
+        this.cells.put(at, (byte)(this.cells.get(at) | code << ((this.size & 3) << 1)));
+        this.size++;
+    }
+
+    /** Overwrites a cell by its raw code. Cells whose indices
+     * agree apart from the lowest two bits share a byte and must
+     * not be written by different threads at once.
+     * @param index: the index of the cell
+     * @param code: the ordinal of the maze.Tile.Type of the cell
+     */
+    void setCode(int index, int code){
+        int shift = (index & 3) << 1;
+        int at = index >> 2;
+        this.cells.put(at, (byte)((this.cells.get(at) & ~(3 << shift)) | code << shift));
+    }
+
+    /** Getter for the number of cells in the grid */
+    int size(){
+        return this.size;
+    }
+
+    /** Getter for the packed cells
+     * @return A read-only view of exactly the (size + 3) / 4 bytes
+     * that hold the grid, positioned at the first one
+     */
+    ByteBuffer bytes(){
+        ByteBuffer view = this.cells.asReadOnlyBuffer();
+        view.clear().limit((this.size + 3) / 4);
+        return view;
+    }
+
+    /** Releases the spare room left over by growing the grid */
+    void trim(){
+        int bytes = (this.size + 3) / 4;
+        if(bytes < this.cells.capacity())
+            this.cells = ByteBuffer.wrap(Arrays.copyOf(this.cells.array(), bytes));
+    }
+
+    /** Writes the grid for serialization; the buffer itself is not
+     * serializable, so its bytes follow the size
+     * @param out: the stream to write to
+     * @throws IOException If the stream fails
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException{
+        out.defaultWriteObject();
+        ByteBuffer view = this.bytes();
+        byte[] packed = new byte[view.remaining()];
+        view.get(packed);
+        out.writeObject(packed);
+    }
+
+    /** Reads a grid written by writeObject
+     * @param in: the stream to read from
+     * @throws IOException If the stream fails
+     * @throws ClassNotFoundException If the byte array class is
+     * somehow missing
+     */
+    private void readObject(ObjectInputStream in) 
+        throws IOException, ClassNotFoundException{
+        in.defaultReadObject();
+        this.cells = ByteBuffer.wrap((byte[])in.readObject());
+    }
+}
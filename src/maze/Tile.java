@@ -2,12 +2,26 @@ package maze;
 
 import java.io.Serializable;
 
-/** The class to describe a Tile object */
+/** The class to describe a Tile object. Tiles that belong to a
+ * maze are lightweight views of one cell of its packed grid: two
+ * views of the same cell are equal.
+ * @see maze.Maze
+ */
 public class Tile implements Serializable {
     /** The type of the tile 
      * @see maze.Tile.Type
     */
-    private Type type = null;
+    private final Type type;
+
+    /** The maze that holds the tile, or null if the tile was
+     * created on its own
+     */
+    private final Maze maze;
+
+    /** The index of the cell the tile describes in its maze,
+     * or -1 if the tile is not part of a maze
+     */
+    private final int index;
 
     /** The constructor initialises the type. Private and
      * exclusively used in Tile.fromChar
@@ -15,7 +29,19 @@ public class Tile implements Serializable {
      * @see maze.Tile.fromChar
      */
     private Tile(Type typeIn){
+        this(typeIn, null, -1);
+    }
+
+    /** The constructor for a view of a maze cell. Only used by
+     * maze.Maze.
+     * @param typeIn: the type of the cell
+     * @param mazeIn: the maze that holds the cell
+     * @param indexIn: the index of the cell in the maze
+     */
+    Tile(Type typeIn, Maze mazeIn, int indexIn){
         this.type = typeIn;
+        this.maze = mazeIn;
+        this.index = indexIn;
     }
 
     /** Creates a new Tile object from a character
@@ -26,35 +52,72 @@ public class Tile implements Serializable {
      * @see maze.Tile.Type
      */
     protected static Tile fromChar(char c) throws BadMazeFormatException{
+        return new Tile(typeFromChar(c));
+    }
+
+    /** Parses a character to a tile type without creating a tile
+     * @param c: the character that describes the type
+     * @return The matching type
+     * @throws BadMazeFormatException If the character does not 
+     * match any predefined type
+     * @see maze.Tile.Type
+     */
+    static Type typeFromChar(char c) throws BadMazeFormatException{
         switch(c){
             case 'e':
-                return new Tile(Type.ENTRANCE);
+                return Type.ENTRANCE;
             case 'x':
-                return new Tile(Type.EXIT);
+                return Type.EXIT;
             case '#':
-                return new Tile(Type.WALL);
+                return Type.WALL;
             case '.':
-                return new Tile(Type.CORRIDOR);
+                return Type.CORRIDOR;
             default:
                 throw new BadMazeFormatException();
         }
     }
 
+    /** Parses a tile type to its character
+     * @param t: the type to be parsed
+     * @return The character that describes the type
+     * @see maze.Tile.Type
+     */
+    static char toChar(Type t){
+        switch(t){
+            case ENTRANCE:
+                return 'e';
+            case EXIT:
+                return 'x';
+            case WALL:
+                return '#';
+            default:
+                return '.';
+        }
+    }
+
     /** Getter for the Tile Type */
     public Type getType(){
         return this.type;
     }
 
+    /** Getter for the maze that holds the tile */
+    Maze getMaze(){
+        return this.maze;
+    }
+
+    /** Getter for the cell index of the tile */
+    int getIndex(){
+        return this.index;
+    }
+
     /** Method that clears whether the tile is navigable.
-     * Modified by the UML extension to make tiles act as one-way
-     * walls if they have already been visited.
-     * @return False if the tile is a wall or has been visited,
-     * true otherwise
+     * Whether a tile has already been visited is tracked by
+     * the maze.routing.RouteFinder, not by the tile.
+     * @return False if the tile is a wall, true otherwise
      * @see maze.Tile.Type
      */
     public boolean isNavigable(){
-        return this.getType() != Type.WALL && 
-            this.visited == false;
+        return this.getType() != Type.WALL;
     }
     
     /** Parses the tile to a type-specific String
@@ -62,29 +125,36 @@ public class Tile implements Serializable {
      * @see maze.Tile.Type
      */
     public String toString(){
-        String s = null;
+        return String.valueOf(toChar(this.type));
+    }
 
-        switch(this.type){
-            case ENTRANCE:
-                s = "e";
-                break;
-            case EXIT:
-                s = "x";
-                break;
-            case WALL:
-                s = "#";
-                break;
-            case CORRIDOR:
-                s = ".";
-                break;
-        }
+    /** Tiles of a maze are equal if they describe the same cell
+     * of the same maze. Tiles created on their own are only equal
+     * to themselves.
+     * @param o: the object to compare with
+     * @return True if both describe the same cell
+     */
+    public boolean equals(Object o){
+        if(this == o)
+            return true;
+        if(!(o instanceof Tile) || this.maze == null)
+            return false;
+
+        Tile t = (Tile)o;
+        return this.maze == t.maze && this.index == t.index;
+    }
 
-        return s;
+    /** Hash code consistent with equals */
+    public int hashCode(){
+        return this.maze == null? 
+            System.identityHashCode(this) : this.index;
     }
 
     /** The inner enum that specifies possible tile types. 
      * Entrance and exit are unique. All are navigable with 
-     * the exception of wall. 
+     * the exception of wall. The order of the values is the
+     * code used in the packed grid of a maze.
+     * @see maze.PackedGrid
      */
     public enum Type{
         ENTRANCE,
@@ -94,44 +164,6 @@ public class Tile implements Serializable {
     } 
 
     // UML EXTENSIONS
-    
-    /** The attribute that specifies whether a tile has been 
-     * visited in a RouteFinder 
-     */
-    private boolean visited = false;
-
-    /** The attribute that specifies whether a RouteFinder has
-     * decided that the tile is not on the right path to the
-     * exit
-     */
-    private boolean wrongPath = false;
-
-    /** When a RouteFinder visit()s a tile, it will mark the 
-     * tile as visited and retrieve it for further processing
-     * @return The visited tile
-     */
-    public Tile visit(){
-        this.visited = true;
-        return this;
-    }
-
-    /** When a RouteFinder leave()s a tile, it will mark it as 
-     * wrong because it did not find a path to the exit by
-     * going through it.
-     */
-    public void leave(){
-        this.wrongPath = true;
-    }
-
-    /** The getter for Tile.visited attribute. */
-    public boolean isVisited(){
-        return this.visited;
-    }
-
-    /** The getter for Tile.wrongPath attribute */
-    public boolean isWrongPath(){
-        return this.wrongPath;
-    }
 
     /** Parses a tile char to its corresponding type-specific 
      * image path from the resources folder.
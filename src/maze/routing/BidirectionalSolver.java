@@ -0,0 +1,281 @@
+package maze.routing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import maze.Maze;
+import maze.Tile;
+
+/** A solver that runs two breadth first searches at once, one
+ * from the entrance and one from the exit, and stops when their
+ * frontiers meet. Each search only has to cover about half the
+ * distance, which in the worst case halves the cells expanded.
+ * The two sides advance one level at a time. Each side only writes
+ * its own depth array while expanding, and the frontiers are
+ * compared once both have finished their level. The two sides can
+ * therefore run on separate threads without any locking.
+ * @see maze.routing.MazeSolver
+ * @see maze.routing.BreadthFirstSolver
+ */
+public class BidirectionalSolver implements MazeSolver {
+
+    /** The maze.Maze that the solver solves */
+    private final Maze maze;
+
+    /** Whether the exit side runs on a thread of its own */
+    private final boolean threaded;
+
+    /** The cells of the route, entrance first, or null if the
+     * search has not finished
+     */
+    private int[] route = null;
+
+    /** The number of cells expanded by both sides so far */
+    private int expanded = 0;
+
+    /** The constructor of a single threaded BidirectionalSolver
+     * @param m: The Maze object to work with
+     * @see maze.Maze
+     */
+    public BidirectionalSolver(Maze m){
+        this(m, false);
+    }
+
+    /** The constructor of BidirectionalSolver
+     * @param m: The Maze object to work with
+     * @param threadedIn: true to expand the exit side on a second
+     * thread while the entrance side is expanded on the caller's
+     * @see maze.Maze
+     */
+    public BidirectionalSolver(Maze m, boolean threadedIn){
+        this.maze = m;
+        this.threaded = threadedIn;
+    }
+
+    /** The getter for the working maze */
+    public Maze getMaze(){
+        return this.maze;
+    }
+
+    /** The getter for whether the two sides run on two threads */
+    public boolean isThreaded(){
+        return this.threaded;
+    }
+
+    /** Runs both searches level by level until a cell has been
+     * reached by both. After a level, the cell reached by both with
+     * the smallest sum of depths lies on a shortest route.
+     * @return A shortest route from the entrance to the exit
+     * @throws NoRouteFoundException If the exit cannot be reached
+     */
+    public List<Tile> findRoute() throws NoRouteFoundException{
+        if(this.route != null)
+            return this.getRoute();
+
+        // the components say at once if the search would be in vain
+        if(!this.getMaze().isSolvable())
+            throw new NoRouteFoundException();
+
+        Maze m = this.getMaze();
+        Side forward = new Side(m, m.getEntranceIndex());
+        Side backward = new Side(m, m.getExitIndex());
+        ExecutorService worker = this.threaded? 
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "bidirectional-solver");
+                t.setDaemon(true);
+                return t;
+            }) : null;
+
+        try{
+            while(forward.size > 0 && backward.size > 0){
+                if(worker == null){
+                    forward.expand();
+                    backward.expand();
+                } else {
+                    Future<?> other = worker.submit(backward::expand);
+                    forward.expand();
+                    await(other);
+                }
+
+                int meet = meet(forward, backward);
+                if(meet >= 0){
+                    this.route = join(forward, backward, meet);
+                    return this.getRoute();
+                }
+            }
+        } finally {
+            this.expanded += forward.expanded + backward.expanded;
+            if(worker != null)
+                worker.shutdownNow();
+        }
+
+        throw new NoRouteFoundException();
+    }
+
+    /** Finds the best cell reached by both sides in the last level
+     * @param a: the entrance side
+     * @param b: the exit side
+     * @return The new cell of either frontier that the other side
+     * has also reached, with the smallest sum of depths, or -1
+     */
+    private static int meet(Side a, Side b){
+        int best = -1;
+        int bestLength = Integer.MAX_VALUE;
+
+        for(Side s: new Side[]{a, b}){
+            Side other = s == a? b : a;
+            for(int i = 0; i < s.size; i++){
+                int c = s.frontier[i];
+                if(other.depth[c] >= 0 && s.depth[c] + other.depth[c] < bestLength){
+                    best = c;
+                    bestLength = s.depth[c] + other.depth[c];
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /** Stitches the halves of the route together at the meeting
+     * cell by walking down the depths of each side
+     * @param a: the entrance side
+     * @param b: the exit side
+     * @param meet: the cell reached by both
+     * @return The cells from the entrance to the exit
+     */
+    private static int[] join(Side a, Side b, int meet){
+        int[] cells = new int[a.depth[meet] + b.depth[meet] + 1];
+        int[] from = a.descend(meet);
+        int[] to = b.descend(meet);
+
+        // the entrance half is walked backwards from the meeting
+        for(int i = 0; i < from.length; i++)
+            cells[i] = from[from.length - 1 - i];
+        System.arraycopy(to, 1, cells, from.length, to.length - 1);
+
+        return cells;
+    }
+
+    /** Waits for the other side to finish its level
+     * @param f: the pending expansion
+     */
+    private static void await(Future<?> f){
+        try{
+            f.get();
+        } catch(ExecutionException e){
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving.");
+        }
+    }
+
+    /** The getter for the route. Only holds the entrance until
+     * findRoute has succeeded.
+     */
+    public List<Tile> getRoute(){
+        if(this.route == null)
+            return Routes.toTiles(this.getMaze(), 
+                new int[]{this.getMaze().getEntranceIndex()});
+        return Routes.toTiles(this.getMaze(), this.route);
+    }
+
+    /** The getter for whether the exit has been reached */
+    public boolean isFinished(){
+        return this.route != null;
+    }
+
+    /** The getter for the number of cells expanded by both sides */
+    public int getNodesExpanded(){
+        return this.expanded;
+    }
+
+    /** One of the two breadth first searches */
+    private static class Side {
+
+        /** The maze being searched */
+        private final Maze maze;
+
+        /** The distance of every reached cell from the start of
+         * this side, -1 for cells not reached yet
+         */
+        private final int[] depth;
+
+        /** The cells reached in the last level */
+        private int[] frontier = new int[16];
+
+        /** The number of cells in the frontier */
+        private int size = 0;
+
+        /** The cells of the level being built */
+        private int[] next = new int[16];
+
+        /** The number of cells expanded by this side */
+        private int expanded = 0;
+
+        /** The constructor starts the side from one cell
+         * @param m: the maze being searched
+         * @param start: the cell to search from
+         */
+        private Side(Maze m, int start){
+            this.maze = m;
+            this.depth = new int[m.getCellCount()];
+            Arrays.fill(this.depth, -1);
+            this.depth[start] = 0;
+            this.frontier[this.size++] = start;
+        }
+
+        /** Replaces the frontier by the cells one step further */
+        private void expand(){
+            int[] neighbours = new int[4];
+            int count = 0;
+
+            for(int i = 0; i < this.size; i++){
+                int cur = this.frontier[i];
+                this.expanded++;
+
+                int n = Routes.openNeighbours(this.maze, cur, neighbours);
+                for(int j = 0; j < n; j++)
+                    if(this.depth[neighbours[j]] < 0){
+                        this.depth[neighbours[j]] = this.depth[cur] + 1;
+                        if(count == this.next.length)
+                            this.next = Arrays.copyOf(this.next, count * 2);
+                        this.next[count++] = neighbours[j];
+                    }
+            }
+
+            int[] swap = this.frontier;
+            this.frontier = this.next;
+            this.next = swap;
+            this.size = count;
+        }
+
+        /** Walks from a cell back to the start of this side, always
+         * to a neighbour one level closer
+         * @param cell: a cell reached by this side
+         * @return The cells from the given one to the start
+         */
+        private int[] descend(int cell){
+            int[] cells = new int[this.depth[cell] + 1];
+            int[] neighbours = new int[4];
+            cells[0] = cell;
+
+            for(int i = 1; i < cells.length; i++){
+                int n = Routes.openNeighbours(this.maze, cells[i - 1], neighbours);
+                for(int j = 0; j < n; j++)
+                    if(this.depth[neighbours[j]] == this.depth[cells[i - 1]] - 1){
+                        cells[i] = neighbours[j];
+                        break;
+                    }
+            }
+
+            return cells;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package maze.routing;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import maze.Maze;
+import maze.Tile;
+
+/** A solver that searches the maze breadth first, so the route it
+ * returns is always a shortest one. The search runs on cell
+ * indices. Every reached cell remembers the direction of the cell
+ * it was reached from as a 4 bit code, two cells to a byte, where
+ * 0 means the cell has not been reached; the queue is a ring of
+ * ints that only grows as large as the frontier. A 10000 by 10000
+ * maze so needs 50 MB besides its grid, not two int arrays of
+ * 400 MB each.
+ *
+ * The search is bound by memory, not by work: the codes are read
+ * in the order the frontier reaches the cells, so most reads miss
+ * the cache. Walls are therefore marked in the codes up front, a
+ * byte of the packed grid at a time, and the search reads nothing
+ * but the codes and the queue. It does not ask the maze whether it
+ * is solvable either, since the queue runs dry when it is not.
+ * @see maze.routing.MazeSolver
+ * @see maze.routing.RouteFinder
+ */
+public class BreadthFirstSolver implements MazeSolver {
+
+    /** The codes of the directions back to the parent of a cell,
+     * in the order of maze.Maze.Direction, and of the entrance
+     */
+    private static final int NORTH = 1;
+    private static final int EAST = 2;
+    private static final int SOUTH = 3;
+    private static final int WEST = 4;
+    private static final int START = 5;
+
+    /** The code of a wall, which is never reached */
+    private static final int BLOCKED = 6;
+
+    /** The codes of the four cells of every byte of the packed
+     * grid, BLOCKED for walls and 0 otherwise, as two bytes of
+     * codes each
+     */
+    private static final byte[] WALLS = walls();
+
+    /** The size the queue starts at, a power of two */
+    private static final int QUEUE_START = 1 << 12;
+
+    /** The maze.Maze that the solver solves */
+    private final Maze maze;
+
+    /** The cells of the route, entrance first, or null if the
+     * search has not finished
+     */
+    private int[] route = null;
+
+    /** The number of cells taken off the queue so far */
+    private int expanded = 0;
+
+    /** The constructor of BreadthFirstSolver
+     * @param m: The Maze object to work with
+     * @see maze.Maze
+     */
+    public BreadthFirstSolver(Maze m){
+        this.maze = m;
+    }
+
+    /** The getter for the working maze */
+    public Maze getMaze(){
+        return this.maze;
+    }
+
+    /** Runs the breadth first search. Every cell is queued at
+     * most once, so the queue never needs more room than the
+     * maze has cells, and it is doubled only when the frontier
+     * outgrows it.
+     * @return The shortest route from the entrance to the exit
+     * @throws NoRouteFoundException If the exit cannot be reached
+     */
+    public List<Tile> findRoute() throws NoRouteFoundException{
+        if(this.route != null)
+            return this.getRoute();
+
+        Maze m = this.getMaze();
+        int width = m.getWidth();
+        int cells = m.getCellCount();
+        int goal = m.getExitIndex();
+
+        // a 4 bit code per cell, 0 until the cell is reached
+        byte[] from = codes(m);
+        int[] queue = new int[QUEUE_START];
+        int head = 0;
+        int size = 1;
+
+        setCode(from, m.getEntranceIndex(), START);
+        queue[0] = m.getEntranceIndex();
+
+        while(size > 0){
+            int cur = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            size--;
+            this.expanded++;
+            if(cur == goal){
+                this.route = trace(from, width, goal);
+                return this.getRoute();
+            }
+
+            // room for the four neighbours, keeping the order
+            if(queue.length - size < 4){
+                int[] bigger = new int[queue.length * 2];
+                for(int i = 0; i < size; i++)
+                    bigger[i] = queue[(head + i) & (queue.length - 1)];
+                queue = bigger;
+                head = 0;
+            }
+
+            // each neighbour is reached from the opposite direction
+            int column = cur % width;
+            int mask = queue.length - 1;
+            if(cur >= width && reach(from, cur - width, SOUTH))
+                queue[(head + size++) & mask] = cur - width;
+            if(column < width - 1 && reach(from, cur + 1, WEST))
+                queue[(head + size++) & mask] = cur + 1;
+            if(cur + width < cells && reach(from, cur + width, NORTH))
+                queue[(head + size++) & mask] = cur + width;
+            if(column > 0 && reach(from, cur - 1, EAST))
+                queue[(head + size++) & mask] = cur - 1;
+        }
+
+        throw new NoRouteFoundException();
+    }
+
+    /** Marks a cell as reached if it is open and was not yet
+     * @param from: the codes of the cells, walls BLOCKED
+     * @param cell: the index of the cell
+     * @param code: the direction back to the cell it is reached from
+     * @return True if the cell has just been reached
+     */
+    private static boolean reach(byte[] from, int cell, int code){
+        if(code(from, cell) != 0)
+            return false;
+        setCode(from, cell, code);
+        return true;
+    }
+
+    /** Creates the codes of a search, with every wall BLOCKED
+     * and every other cell 0
+     * @param m: the maze being searched
+     * @return Half a byte per cell, two cells to a byte
+     */
+    private static byte[] codes(Maze m){
+        ByteBuffer grid = m.getPackedCells();
+        byte[] from = new byte[(m.getCellCount() + 1) / 2];
+        // one byte of the grid is two bytes of codes
+        for(int i = 0, j = 0; j < from.length; i++, j += 2){
+            int b = grid.get(i) & 255;
+            from[j] = WALLS[2 * b];
+            if(j + 1 < from.length)
+                from[j + 1] = WALLS[2 * b + 1];
+        }
+        return from;
+    }
+
+    /** Works out the table of wall codes
+     * @return The codes of the cells of every byte of the grid
+     */
+    private static byte[] walls(){
+        int wall = Tile.Type.WALL.ordinal();
+        byte[] table = new byte[512];
+        for(int b = 0; b < 256; b++)
+            for(int cell = 0; cell < 4; cell++)
+                if((b >> (cell << 1) & 3) == wall)
+                    table[2 * b + (cell >> 1)] |= BLOCKED << ((cell & 1) << 2);
+        return table;
+    }
+
+    /** Getter for the code of a cell
+     * @param from: the codes of the cells
+     * @param cell: the index of the cell
+     * @return The code, 0 if the cell has not been reached
+     */
+    private static int code(byte[] from, int cell){
+        return from[cell >> 1] >> ((cell & 1) << 2) & 15;
+    }
+
+    /** Setter for the code of a cell that has none yet
+     * @param from: the codes of the cells
+     * @param cell: the index of the cell
+     * @param code: the code
+     */
+    private static void setCode(byte[] from, int cell, int code){
+        from[cell >> 1] |= code << ((cell & 1) << 2);
+    }
+
+    /** Follows the codes back from a cell to the entrance
+     * @param from: the codes of the cells
+     * @param width: the width of the maze
+     * @param goal: the cell to start tracing from
+     * @return The cells from the entrance to goal
+     */
+    private static int[] trace(byte[] from, int width, int goal){
+        // the offset to the parent of each code
+        int[] step = {0, -width, 1, width, -1};
+        int length = 1;
+        for(int c = goal; code(from, c) != START; c += step[code(from, c)])
+            length++;
+
+        int[] route = new int[length];
+        for(int c = goal, i = length - 1; i >= 0; i--){
+            route[i] = c;
+            if(i > 0)
+                c += step[code(from, c)];
+        }
+        return route;
+    }
+
+    /** The getter for the route. Only holds the entrance until
+     * findRoute has succeeded.
+     */
+    public List<Tile> getRoute(){
+        if(this.route == null)
+            return Routes.toTiles(this.getMaze(), 
+                new int[]{this.getMaze().getEntranceIndex()});
+        return Routes.toTiles(this.getMaze(), this.route);
+    }
+
+    /** The getter for whether the exit has been reached */
+    public boolean isFinished(){
+        return this.route != null;
+    }
+
+    /** The getter for the number of cells expanded by the search */
+    public int getNodesExpanded(){
+        return this.expanded;
+    }
+}
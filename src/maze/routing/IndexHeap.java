@@ -0,0 +1,77 @@
+package maze.routing;
+
+import java.util.Arrays;
+
+/** A binary min-heap of cell indices ordered by a primitive long
+ * key. There is no decrease-key: a cell whose key improves is
+ * simply pushed again and the stale entry is skipped by the caller
+ * when it comes out.
+ * @see maze.routing.AStarSolver
+ */
+final class IndexHeap {
+
+    /** The keys of the entries, in heap order */
+    private long[] keys = new long[64];
+
+    /** The cell indices of the entries, parallel to keys */
+    private int[] values = new int[64];
+
+    /** The number of entries in the heap */
+    private int size = 0;
+
+    /** Checks whether the heap has no entries left */
+    boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    /** Adds an entry to the heap
+     * @param key: the priority, smallest comes out first
+     * @param value: the cell index
+     */
+    void push(long key, int value){
+        if(this.size == this.keys.length){
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+
+        // sift the new entry up from the bottom
+        int i = this.size++;
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            if(this.keys[parent] <= key)
+                break;
+            this.keys[i] = this.keys[parent];
+            this.values[i] = this.values[parent];
+            i = parent;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+    }
+
+    /** Removes the entry with the smallest key
+     * @return The cell index of the removed entry
+     */
+    int pop(){
+        int top = this.values[0];
+        long key = this.keys[--this.size];
+        int value = this.values[this.size];
+
+        // sift the last entry down from the top
+        int i = 0;
+        int half = this.size >>> 1;
+        while(i < half){
+            int child = 2 * i + 1;
+            if(child + 1 < this.size && this.keys[child + 1] < this.keys[child])
+                child++;
+            if(key <= this.keys[child])
+                break;
+            this.keys[i] = this.keys[child];
+            this.values[i] = this.values[child];
+            i = child;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+
+        return top;
+    }
+}
@@ -0,0 +1,289 @@
+package maze.routing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import maze.Maze;
+import maze.Tile;
+
+/** A solver that runs Jump Point Search, a variant of A* for grids
+ * where every move costs the same. Instead of queueing every
+ * neighbour it jumps along straight corridors and only stops at
+ * cells where a shortest route may have to turn, so open areas
+ * cost a handful of expansions.
+ * On a 4-connected grid the horizontal moves play the part of the
+ * diagonal moves of the classic 8-connected search: a horizontal
+ * jump looks up and down the column at every cell it crosses,
+ * while a vertical jump only stops when a wall beside it ends and
+ * opens a side corridor that cannot be reached as fast another way.
+ * @see maze.routing.MazeSolver
+ * @see maze.routing.AStarSolver
+ */
+public class JumpPointSolver implements MazeSolver {
+
+    /** Direction codes, in the order of maze.Maze.Direction */
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int SOUTH = 2;
+    private static final int WEST = 3;
+
+    /** The maze.Maze that the solver solves */
+    private final Maze maze;
+
+    /** The cells of the route, entrance first, or null if the
+     * search has not finished
+     */
+    private int[] route = null;
+
+    /** The number of jump points taken off the open list so far */
+    private int expanded = 0;
+
+    /** The exit cell while a search is running */
+    private int goal = -1;
+
+    /** The constructor of JumpPointSolver
+     * @param m: The Maze object to work with
+     * @see maze.Maze
+     */
+    public JumpPointSolver(Maze m){
+        this.maze = m;
+    }
+
+    /** The getter for the working maze */
+    public Maze getMaze(){
+        return this.maze;
+    }
+
+    /** Runs the search. Jump points are ordered as in
+     * maze.routing.AStarSolver, the cost of a jump being the
+     * number of cells it crosses.
+     * @return A shortest route from the entrance to the exit
+     * @throws NoRouteFoundException If the exit cannot be reached
+     */
+    public List<Tile> findRoute() throws NoRouteFoundException{
+        if(this.route != null)
+            return this.getRoute();
+
+        // the components say at once if the search would be in vain
+        if(!this.getMaze().isSolvable())
+            throw new NoRouteFoundException();
+
+        Maze m = this.getMaze();
+        int start = m.getEntranceIndex();
+        this.goal = m.getExitIndex();
+
+        int[] g = new int[m.getCellCount()];
+        Arrays.fill(g, Integer.MAX_VALUE);
+        int[] parent = new int[m.getCellCount()];
+        BitSet closed = new BitSet(m.getCellCount());
+        IndexHeap open = new IndexHeap();
+
+        g[start] = 0;
+        parent[start] = start;
+        open.push(AStarSolver.key(0, AStarSolver.distance(m, start, goal)), start);
+
+        while(!open.isEmpty()){
+            int cur = open.pop();
+            if(closed.get(cur))
+                continue;
+            closed.set(cur);
+            this.expanded++;
+
+            if(cur == this.goal){
+                this.route = this.fill(Routes.trace(parent, this.goal));
+                return this.getRoute();
+            }
+
+            for(int d = NORTH; d <= WEST; d++){
+                if(!this.isSuccessor(cur, parent[cur], d))
+                    continue;
+
+                int jp = this.jump(cur, d);
+                if(jp < 0)
+                    continue;
+
+                int cost = g[cur] + AStarSolver.distance(m, cur, jp);
+                if(cost < g[jp]){
+                    g[jp] = cost;
+                    parent[jp] = cur;
+                    open.push(AStarSolver.key(cost, 
+                        AStarSolver.distance(m, jp, this.goal)), jp);
+                }
+            }
+        }
+
+        throw new NoRouteFoundException();
+    }
+
+    /** Decides which directions are worth jumping in from a jump
+     * point, given the direction it was reached from. The start
+     * looks everywhere; a horizontal arrival goes on or turns up
+     * or down; a vertical arrival goes on, or turns aside where a
+     * wall beside the previous cell has ended.
+     * @param cell: the jump point being expanded
+     * @param from: the jump point it was reached from
+     * @param d: the direction code to check
+     * @return True if a jump in direction d must be tried
+     */
+    private boolean isSuccessor(int cell, int from, int d){
+        if(cell == from)
+            return true;
+
+        int width = this.getMaze().getWidth();
+        if(cell / width == from / width){
+            int arrival = cell > from? EAST : WEST;
+            return d != opposite(arrival);
+        }
+
+        int arrival = cell > from? SOUTH : NORTH;
+        if(d == arrival)
+            return true;
+        if(d == opposite(arrival))
+            return false;
+        return this.isForced(this.move(cell, opposite(arrival)), cell, d);
+    }
+
+    /** Jumps from a cell in one direction
+     * @param cell: the cell to jump from
+     * @param d: the direction code
+     * @return The next jump point in that direction, or -1 if the
+     * jump runs into a wall or the edge of the maze
+     */
+    private int jump(int cell, int d){
+        if(d == EAST || d == WEST)
+            return this.jumpHorizontal(cell, d);
+        return this.jumpVertical(cell, d);
+    }
+
+    /** Jumps up or down a column until the exit, a dead end or a
+     * cell with a forced side neighbour
+     * @param cell: the cell to jump from
+     * @param d: NORTH or SOUTH
+     * @return The jump point found, or -1
+     */
+    private int jumpVertical(int cell, int d){
+        int prev = cell;
+        int cur = this.move(prev, d);
+        while(cur >= 0){
+            if(cur == this.goal || this.isForced(prev, cur, EAST) 
+                || this.isForced(prev, cur, WEST))
+                return cur;
+            prev = cur;
+            cur = this.move(prev, d);
+        }
+
+        return -1;
+    }
+
+    /** Jumps along a row until the exit or a cell from which a
+     * vertical jump finds something
+     * @param cell: the cell to jump from
+     * @param d: EAST or WEST
+     * @return The jump point found, or -1
+     */
+    private int jumpHorizontal(int cell, int d){
+        int cur = this.move(cell, d);
+        while(cur >= 0){
+            if(cur == this.goal || this.jumpVertical(cur, NORTH) >= 0 
+                || this.jumpVertical(cur, SOUTH) >= 0)
+                return cur;
+            cur = this.move(cur, d);
+        }
+
+        return -1;
+    }
+
+    /** Checks whether a vertical move from prev to cur forces a
+     * turn to one side: the side of cur is open while the side of
+     * prev is not, so no equally short route passes beside prev.
+     * @param prev: the cell the move starts from
+     * @param cur: the cell the move lands on
+     * @param side: EAST or WEST
+     * @return True if the side neighbour of cur is forced
+     */
+    private boolean isForced(int prev, int cur, int side){
+        return this.move(cur, side) >= 0 && this.move(prev, side) < 0;
+    }
+
+    /** Moves one cell
+     * @param cell: the cell to move from
+     * @param d: the direction code
+     * @return The cell moved to, or -1 if it is a wall or out of
+     * bounds
+     */
+    private int move(int cell, int d){
+        Maze m = this.getMaze();
+        int width = m.getWidth();
+        int next = -1;
+
+        switch(d){
+            case NORTH:
+                next = cell >= width? cell - width : -1;
+                break;
+            case EAST:
+                next = cell % width < width - 1? cell + 1 : -1;
+                break;
+            case SOUTH:
+                next = cell + width < m.getCellCount()? cell + width : -1;
+                break;
+            case WEST:
+                next = cell % width > 0? cell - 1 : -1;
+                break;
+        }
+
+        return next >= 0 && Routes.isOpen(m, next)? next : -1;
+    }
+
+    /** Getter for the direction code pointing the other way */
+    private static int opposite(int d){
+        return (d + 2) % 4;
+    }
+
+    /** Fills in the cells between consecutive jump points, which
+     * always share a row or a column
+     * @param jumpPoints: the jump points from entrance to exit
+     * @return Every cell of the route from entrance to exit
+     */
+    private int[] fill(int[] jumpPoints){
+        Maze m = this.getMaze();
+        int length = 1;
+        for(int i = 1; i < jumpPoints.length; i++)
+            length += AStarSolver.distance(m, jumpPoints[i - 1], jumpPoints[i]);
+
+        int[] cells = new int[length];
+        int k = 0;
+        cells[k++] = jumpPoints[0];
+        for(int i = 1; i < jumpPoints.length; i++){
+            int from = jumpPoints[i - 1];
+            int to = jumpPoints[i];
+            int stride = from / m.getWidth() == to / m.getWidth()? 1 : m.getWidth();
+            if(to < from)
+                stride = -stride;
+            for(int c = from + stride; c != to + stride; c += stride)
+                cells[k++] = c;
+        }
+
+        return cells;
+    }
+
+    /** The getter for the route. Only holds the entrance until
+     * findRoute has succeeded.
+     */
+    public List<Tile> getRoute(){
+        if(this.route == null)
+            return Routes.toTiles(this.getMaze(), 
+                new int[]{this.getMaze().getEntranceIndex()});
+        return Routes.toTiles(this.getMaze(), this.route);
+    }
+
+    /** The getter for whether the exit has been reached */
+    public boolean isFinished(){
+        return this.route != null;
+    }
+
+    /** The getter for the number of jump points expanded */
+    public int getNodesExpanded(){
+        return this.expanded;
+    }
+}
@@ -0,0 +1,42 @@
+package maze.routing;
+
+import java.util.List;
+
+import maze.Maze;
+import maze.Tile;
+
+/** Interface for the ways of finding a route through a maze.
+ * Every solver works on one maze.Maze, given to its constructor,
+ * and keeps its own search state, so several solvers can work on
+ * the same maze at once.
+ * @see maze.routing.RouteFinder
+ * @see maze.routing.BreadthFirstSolver
+ * @see maze.routing.AStarSolver
+ * @see maze.routing.JumpPointSolver
+ */
+public interface MazeSolver {
+
+    /** The getter for the working maze */
+    Maze getMaze();
+
+    /** Searches the maze until the exit is reached. Calling it
+     * again once the route is known returns the same route.
+     * @return The route from the entrance to the exit, first
+     * tile being the entrance and last tile the exit
+     * @throws NoRouteFoundException If the maze is unsolvable
+     */
+    List<Tile> findRoute() throws NoRouteFoundException;
+
+    /** The getter for the route found so far. Before the search
+     * starts this only holds the entrance.
+     */
+    List<Tile> getRoute();
+
+    /** The getter for whether the exit has been reached */
+    boolean isFinished();
+
+    /** The getter for the number of nodes the search has expanded
+     * so far, a measure of how much work it has done
+     */
+    int getNodesExpanded();
+}
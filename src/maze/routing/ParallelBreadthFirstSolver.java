@@ -0,0 +1,254 @@
+package maze.routing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import maze.Maze;
+import maze.Tile;
+
+/** A breadth first solver for very large mazes that expands every
+ * level of the search in parallel. Each frontier is split across
+ * a java.util.concurrent.ForkJoinPool. Cells are claimed with a
+ * compare-and-set on a shared visited bitmap, so each cell gets
+ * exactly one parent and no locks are taken. Parents always come
+ * from the previous level, so the route has the same length as
+ * the one maze.routing.BreadthFirstSolver returns.
+ * @see maze.routing.MazeSolver
+ * @see maze.routing.BreadthFirstSolver
+ */
+public class ParallelBreadthFirstSolver implements MazeSolver {
+
+    /** The number of frontier cells below which a task expands
+     * them itself instead of splitting
+     */
+    private static final int SPLIT_THRESHOLD = 2048;
+
+    /** The maze.Maze that the solver solves */
+    private final Maze maze;
+
+    /** The number of threads to use, or 0 for the common pool */
+    private final int parallelism;
+
+    /** The cells of the route, entrance first, or null if the
+     * search has not finished
+     */
+    private int[] route = null;
+
+    /** The number of cells expanded so far */
+    private int expanded = 0;
+
+    /** The constructor of ParallelBreadthFirstSolver. The search
+     * runs on the common java.util.concurrent.ForkJoinPool.
+     * @param m: The Maze object to work with
+     * @see maze.Maze
+     */
+    public ParallelBreadthFirstSolver(Maze m){
+        this(m, 0);
+    }
+
+    /** The constructor of ParallelBreadthFirstSolver with a pool
+     * of its own
+     * @param m: The Maze object to work with
+     * @param parallelismIn: the number of threads to search with,
+     * or 0 to use the common pool
+     * @see maze.Maze
+     */
+    public ParallelBreadthFirstSolver(Maze m, int parallelismIn){
+        if(parallelismIn < 0)
+            throw new IllegalArgumentException("Parallelism cannot be negative.");
+        this.maze = m;
+        this.parallelism = parallelismIn;
+    }
+
+    /** The getter for the working maze */
+    public Maze getMaze(){
+        return this.maze;
+    }
+
+    /** The getter for the number of threads, 0 for the common pool */
+    public int getParallelism(){
+        return this.parallelism;
+    }
+
+    /** Runs the search one level at a time until the exit has been
+     * claimed or the frontier runs dry
+     * @return A shortest route from the entrance to the exit
+     * @throws NoRouteFoundException If the exit cannot be reached
+     */
+    public List<Tile> findRoute() throws NoRouteFoundException{
+        if(this.route != null)
+            return this.getRoute();
+
+        // the components say at once if the search would be in vain
+        if(!this.getMaze().isSolvable())
+            throw new NoRouteFoundException();
+
+        ForkJoinPool pool = this.parallelism == 0? 
+            ForkJoinPool.commonPool() : new ForkJoinPool(this.parallelism);
+
+        try{
+            this.route = this.search(pool);
+        } finally {
+            if(pool != ForkJoinPool.commonPool())
+                pool.shutdown();
+        }
+
+        return this.getRoute();
+    }
+
+    /** The level by level search
+     * @param pool: the pool to expand the levels on
+     * @return The cells of the route
+     * @throws NoRouteFoundException If the exit cannot be reached
+     */
+    private int[] search(ForkJoinPool pool) throws NoRouteFoundException{
+        Maze m = this.getMaze();
+        int start = m.getEntranceIndex();
+        int goal = m.getExitIndex();
+
+        // a parent is only written by the task that claimed the
+        // cell, and read after the level has been joined
+        int[] parent = new int[m.getCellCount()];
+        AtomicLongArray claimed = new AtomicLongArray((m.getCellCount() + 63) >>> 6);
+        claim(claimed, start);
+        parent[start] = start;
+        int[] frontier = {start};
+
+        while(frontier.length > 0){
+            this.expanded += frontier.length;
+            frontier = pool.invoke(new Expansion(m, frontier, 0, 
+                frontier.length, claimed, parent));
+
+            if(isClaimed(claimed, goal))
+                return Routes.trace(parent, goal);
+        }
+
+        throw new NoRouteFoundException();
+    }
+
+    /** Claims a cell for the current level
+     * @param claimed: the visited bitmap
+     * @param cell: the cell to claim
+     * @return True if this call claimed the cell, false if it had
+     * already been claimed
+     */
+    private static boolean claim(AtomicLongArray claimed, int cell){
+        int word = cell >>> 6;
+        long mask = 1L << cell;
+        long old = claimed.get(word);
+
+        while((old & mask) == 0){
+            if(claimed.compareAndSet(word, old, old | mask))
+                return true;
+            old = claimed.get(word);
+        }
+
+        return false;
+    }
+
+    /** Checks whether a cell has been claimed */
+    private static boolean isClaimed(AtomicLongArray claimed, int cell){
+        return (claimed.get(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    /** The getter for the route. Only holds the entrance until
+     * findRoute has succeeded.
+     */
+    public List<Tile> getRoute(){
+        if(this.route == null)
+            return Routes.toTiles(this.getMaze(), 
+                new int[]{this.getMaze().getEntranceIndex()});
+        return Routes.toTiles(this.getMaze(), this.route);
+    }
+
+    /** The getter for whether the exit has been reached */
+    public boolean isFinished(){
+        return this.route != null;
+    }
+
+    /** The getter for the number of cells expanded so far */
+    public int getNodesExpanded(){
+        return this.expanded;
+    }
+
+    /** A task that expands a slice of the frontier and returns the
+     * cells it claimed for the next level. ForkJoinTask is
+     * Serializable, but the task is never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class Expansion extends RecursiveTask<int[]> {
+
+        /** The maze being searched */
+        private final Maze maze;
+
+        /** The frontier being expanded */
+        private final int[] frontier;
+
+        /** The first frontier position of the slice */
+        private final int from;
+
+        /** The position after the last one of the slice */
+        private final int to;
+
+        /** The visited bitmap shared by all tasks */
+        private final AtomicLongArray claimed;
+
+        /** The parent array shared by all tasks */
+        private final int[] parent;
+
+        /** The constructor of the task
+         * @param m: the maze being searched
+         * @param frontierIn: the whole frontier
+         * @param fromIn: the first position of the slice
+         * @param toIn: the position after the slice
+         * @param claimedIn: the visited bitmap
+         * @param parentIn: the parent array
+         */
+        private Expansion(Maze m, int[] frontierIn, int fromIn, int toIn,
+            AtomicLongArray claimedIn, int[] parentIn){
+            this.maze = m;
+            this.frontier = frontierIn;
+            this.from = fromIn;
+            this.to = toIn;
+            this.claimed = claimedIn;
+            this.parent = parentIn;
+        }
+
+        protected int[] compute(){
+            if(this.to - this.from > SPLIT_THRESHOLD){
+                int mid = (this.from + this.to) >>> 1;
+                Expansion left = new Expansion(this.maze, this.frontier, 
+                    this.from, mid, this.claimed, this.parent);
+                left.fork();
+                int[] right = new Expansion(this.maze, this.frontier, 
+                    mid, this.to, this.claimed, this.parent).compute();
+                int[] l = left.join();
+
+                int[] both = Arrays.copyOf(l, l.length + right.length);
+                System.arraycopy(right, 0, both, l.length, right.length);
+                return both;
+            }
+
+            int[] next = new int[Math.max(16, (this.to - this.from) * 2)];
+            int[] neighbours = new int[4];
+            int count = 0;
+
+            for(int i = this.from; i < this.to; i++){
+                int cur = this.frontier[i];
+                int n = Routes.openNeighbours(this.maze, cur, neighbours);
+                for(int j = 0; j < n; j++)
+                    if(claim(this.claimed, neighbours[j])){
+                        this.parent[neighbours[j]] = cur;
+                        if(count == next.length)
+                            next = Arrays.copyOf(next, count * 2);
+                        next[count++] = neighbours[j];
+                    }
+            }
+
+            return Arrays.copyOf(next, count);
+        }
+    }
+}
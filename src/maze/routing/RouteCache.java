@@ -0,0 +1,382 @@
+package maze.routing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import maze.Maze;
+import maze.Tile;
+
+/** A cache of finished routes, so that a maze solved once is not
+ * searched again. Routes are keyed by the content hash of the maze
+ * and the kind of solver, so the same layout is found whichever
+ * file or request it came from. Mazes without a route are cached
+ * as well.
+ *
+ * Routes are kept in memory as cell indices, weighed at four bytes
+ * a cell, and the least recently used ones are evicted once the
+ * total is over the memory budget. If there is a spill directory,
+ * an evicted route is written there in the route file format and
+ * read back on its next lookup, so it still needs no search;
+ * flush writes the rest, so later runs find them as well.
+ *
+ * Nothing here notices a maze file changing: a changed file has a
+ * new content hash, so its old routes are simply never asked for
+ * again. To drop them at once, connect the cache to the invalidation
+ * listener of a maze.service.MazeCache, e.g.
+ *   mazes.addInvalidationListener((path, old) -> routes.invalidate(old));
+ * @see maze.routing.SolverType
+ * @see maze.routing.RouteFile
+ */
+public class RouteCache {
+
+    /** The weight of an entry besides its route, in bytes */
+    private static final long ENTRY_OVERHEAD = 64;
+
+    /** The route of a maze without one */
+    private static final int[] NO_ROUTE = new int[0];
+
+    /** The most bytes of routes kept in memory */
+    private final long budget;
+
+    /** Where evicted routes are written, or null */
+    private final Path spill;
+
+    /** The cached routes, least recently used first */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The total weight of the cached routes */
+    private long weight = 0;
+
+    /** The counters */
+    private long hits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long spills = 0;
+    private long invalidations = 0;
+
+    /** The constructor
+     * @param budgetBytes: the most bytes of routes to keep in memory
+     * @param spillDirectory: where evicted routes are written, or
+     * null to drop them; it is created if needed
+     * @throws IOException If the spill directory cannot be created
+     */
+    public RouteCache(long budgetBytes, Path spillDirectory) throws IOException{
+        this.budget = budgetBytes;
+        this.spill = spillDirectory;
+        if(spillDirectory != null)
+            Files.createDirectories(spillDirectory);
+    }
+
+    /** Gets the route of a maze from the cache, or searches for it
+     * and caches it
+     * @param m: the maze
+     * @param type: the kind of solver
+     * @return The route from the entrance to the exit
+     * @throws NoRouteFoundException If the maze is unsolvable
+     */
+    public List<Tile> solve(Maze m, SolverType type) throws NoRouteFoundException{
+        List<Tile> route = this.get(m, type);
+        if(route != null)
+            return route;
+
+        try{
+            route = type.create(m).findRoute();
+        }
+        catch(NoRouteFoundException e){
+            this.put(m, type, null);
+            throw e;
+        }
+        this.put(m, type, route);
+        return route;
+    }
+
+    /** Looks up the route of a maze, in memory and then on disk
+     * @param m: the maze
+     * @param type: the kind of solver
+     * @return The route, or null if it is not cached
+     * @throws NoRouteFoundException If the maze is cached as
+     * unsolvable
+     */
+    public List<Tile> get(Maze m, SolverType type) throws NoRouteFoundException{
+        Key key = new Key(m.getContentHash(), type);
+        Entry e;
+        synchronized(this){
+            e = this.entries.get(key);
+            if(e != null)
+                this.hits++;
+        }
+
+        if(e == null && this.spill != null){
+            int[] route = this.readSpill(m, key);
+            if(route != null){
+                e = new Entry(key, m, route, true);
+                synchronized(this){
+                    this.diskHits++;
+                }
+                this.add(e);
+            }
+        }
+
+        if(e == null){
+            synchronized(this){
+                this.misses++;
+            }
+            return null;
+        }
+        if(e.route.length == 0)
+            throw new NoRouteFoundException();
+        return Routes.toTiles(m, e.route);
+    }
+
+    /** Caches the route of a maze
+     * @param m: the maze
+     * @param type: the kind of solver that found the route
+     * @param route: the route, or null if the maze is unsolvable
+     */
+    public void put(Maze m, SolverType type, List<Tile> route){
+        int[] cells = NO_ROUTE;
+        if(route != null){
+            cells = new int[route.size()];
+            for(int i = 0; i < cells.length; i++)
+                cells[i] = m.getIndex(route.get(i));
+        }
+        this.add(new Entry(new Key(m.getContentHash(), type), m, cells, false));
+    }
+
+    /** Drops every route of a maze, in memory and on disk
+     * @param m: the maze, e.g. the old maze of a changed file
+     */
+    public void invalidate(Maze m){
+        long hash = m.getContentHash();
+        synchronized(this){
+            for(SolverType type : SolverType.values()){
+                Entry e = this.entries.remove(new Key(hash, type));
+                if(e != null){
+                    this.weight -= e.weight;
+                    this.invalidations++;
+                }
+            }
+        }
+
+        if(this.spill != null){
+            for(SolverType type : SolverType.values()){
+                try{
+                    Files.deleteIfExists(this.spillFile(new Key(hash, type)));
+                }
+                catch(IOException e){
+                    // a stale file is only read for the same content
+                }
+            }
+        }
+    }
+
+    /** Writes every route held only in memory to the spill
+     * directory, e.g. before the program ends, so later runs find
+     * them. Does nothing without a spill directory.
+     */
+    public void flush(){
+        if(this.spill == null)
+            return;
+        List<Entry> pending = new ArrayList<>();
+        synchronized(this){
+            for(Entry e : this.entries.values())
+                if(!e.onDisk)
+                    pending.add(e);
+        }
+        for(Entry e : pending)
+            if(this.writeSpill(e)){
+                synchronized(this){
+                    e.onDisk = true;
+                }
+            }
+    }
+
+    /** Getter for the number of lookups answered from memory */
+    public synchronized long getHits(){
+        return this.hits;
+    }
+
+    /** Getter for the number of lookups answered from disk */
+    public synchronized long getDiskHits(){
+        return this.diskHits;
+    }
+
+    /** Getter for the number of lookups that found nothing */
+    public synchronized long getMisses(){
+        return this.misses;
+    }
+
+    /** Getter for the number of routes evicted from memory */
+    public synchronized long getEvictions(){
+        return this.evictions;
+    }
+
+    /** Getter for the number of evicted routes written to disk */
+    public synchronized long getSpills(){
+        return this.spills;
+    }
+
+    /** Getter for the number of routes dropped by invalidate */
+    public synchronized long getInvalidations(){
+        return this.invalidations;
+    }
+
+    /** Getter for the number of routes in memory */
+    public synchronized int size(){
+        return this.entries.size();
+    }
+
+    /** Method for parsing the counters to a String */
+    public synchronized String toString(){
+        return "RouteCache(routes=" + this.entries.size() + ", bytes=" + this.weight + 
+            ", hits=" + this.hits + ", diskHits=" + this.diskHits + 
+            ", misses=" + this.misses + ", evictions=" + this.evictions + 
+            ", spills=" + this.spills + ", invalidations=" + this.invalidations + ")";
+    }
+
+    /** Adds an entry, evicting the least recently used ones until
+     * the cache is within budget, and spills them
+     * @param e: the new entry
+     */
+    private void add(Entry e){
+        List<Entry> evicted = new ArrayList<>();
+        synchronized(this){
+            Entry old = this.entries.put(e.key, e);
+            if(old != null)
+                this.weight -= old.weight;
+            this.weight += e.weight;
+
+            Iterator<Entry> eldest = this.entries.values().iterator();
+            while(this.weight > this.budget && eldest.hasNext()){
+                Entry out = eldest.next();
+                eldest.remove();
+                this.weight -= out.weight;
+                this.evictions++;
+                if(!out.onDisk)
+                    evicted.add(out);
+            }
+        }
+
+        // the files are written outside the lock
+        if(this.spill != null)
+            for(Entry out : evicted)
+                this.writeSpill(out);
+    }
+
+    /** Writes a route to the spill directory, through a temporary
+     * file so a reader never sees half of it
+     * @param e: the entry of the route
+     * @return Whether the route was written
+     */
+    private boolean writeSpill(Entry e){
+        try{
+            Path file = this.spillFile(e.key);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            RouteFile.writeRoute(temporary, e.key.hash, e.width, e.height, e.route);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            synchronized(this){
+                this.spills++;
+            }
+            return true;
+        }
+        catch(IOException ex){
+            // the route is only lost from the cache
+            return false;
+        }
+    }
+
+    /** Reads a spilled route
+     * @param m: the maze of the route
+     * @param key: the key of the route
+     * @return The route cells, NO_ROUTE for an unsolvable maze, or
+     * null if there is no readable file
+     */
+    private int[] readSpill(Maze m, Key key){
+        Path file = this.spillFile(key);
+        if(!Files.exists(file))
+            return null;
+        try{
+            int[] route = RouteFile.read(file, m).getRouteCells();
+            return route.length == 0? NO_ROUTE : route;
+        }
+        catch(IOException e){
+            // a damaged file is dropped, so the route is found again
+            try{
+                Files.deleteIfExists(file);
+            }
+            catch(IOException ignored){
+            }
+            return null;
+        }
+    }
+
+    /** Getter for the spill file of a route
+     * @param key: the key of the route
+     * @return The path of the file
+     */
+    private Path spillFile(Key key){
+        return this.spill.resolve(String.format("%016x-%s.route", key.hash, key.type.getName()));
+    }
+
+    /** The key of a route: the content hash of the maze and the kind
+     * of solver
+     */
+    private static final class Key {
+
+        private final long hash;
+        private final SolverType type;
+
+        /** The constructor
+         * @param hashIn: the content hash of the maze
+         * @param typeIn: the kind of solver
+         */
+        private Key(long hashIn, SolverType typeIn){
+            this.hash = hashIn;
+            this.type = typeIn;
+        }
+
+        public boolean equals(Object o){
+            if(!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return k.hash == this.hash && k.type == this.type;
+        }
+
+        public int hashCode(){
+            return Long.hashCode(this.hash) * 31 + this.type.ordinal();
+        }
+    }
+
+    /** A cached route */
+    private static final class Entry {
+
+        private final Key key;
+        private final int width;
+        private final int height;
+        private final int[] route;
+        private boolean onDisk;
+        private final long weight;
+
+        /** The constructor
+         * @param keyIn: the key of the route
+         * @param m: the maze of the route, which is not kept
+         * @param routeIn: the cells of the route
+         * @param onDiskIn: whether the route is already spilled
+         */
+        private Entry(Key keyIn, Maze m, int[] routeIn, boolean onDiskIn){
+            this.key = keyIn;
+            this.width = m.getWidth();
+            this.height = m.getHeight();
+            this.route = routeIn;
+            this.onDisk = onDiskIn;
+            this.weight = 4L * routeIn.length + ENTRY_OVERHEAD;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package maze.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import maze.InvalidMazeException;
+import maze.Maze;
+import maze.Maze.Direction;
+import maze.Tile;
+
+/** The file format behind maze.routing.RouteFinder.save and load.
+ * It holds the state of a search and only a reference to its maze,
+ * never the maze itself. All numbers are big endian:
+ *
+ *   magic "ROUT", version, content hash of the maze (8 bytes),
+ *   width, height, path of the maze file (UTF, "" if unknown),
+ *   flags (bit 0: finished), route length,
+ *   first cell of the route, then one 2 bit maze.Maze.Direction
+ *   per further cell, four to a byte, lowest bits first,
+ *   visited cells and wrong path cells, each as the length of the
+ *   bitset bytes, the length of their deflated form and the
+ *   deflated bytes,
+ *   CRC32 of everything before it
+ *
+ * The maze path is kept relative to the folder of the route file
+ * when it can be, so a route and its maze can be moved together.
+ * @see maze.routing.RouteFinder
+ * @see maze.Maze#getContentHash
+ */
+final class RouteFile {
+
+    /** The first four bytes of every file, "ROUT" */
+    static final int MAGIC = 0x524f5554;
+
+    /** The version written by this class */
+    static final int VERSION = 1;
+
+    /** The directions indexed by their 2 bit code */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The class only has static methods */
+    private RouteFile(){}
+
+    /** Saves the state of a RouteFinder, replacing any file there
+     * @param rf: the RouteFinder to save
+     * @param path: the path to the file
+     * @return The checksum the file ends with
+     * @throws IOException If the file cannot be written
+     */
+    static int write(RouteFinder rf, Path path) throws IOException{
+        Maze m = rf.getMaze();
+        return write(path, m.getContentHash(), m.getWidth(), m.getHeight(), 
+            m.getSource(), rf.isFinished(), rf.getRouteCells(), 
+            rf.getVisitedCells(), rf.getWrongPathCells());
+    }
+
+    /** Saves a finished route that is no longer held by a
+     * RouteFinder. It loads as a RouteFinder that has reached the
+     * exit by that route, with only the route visited.
+     * @param path: the path to the file
+     * @param hash: the content hash of the maze
+     * @param width: the number of tiles in a row of the maze
+     * @param height: the number of rows of the maze
+     * @param route: the cells of the route, none if the maze has
+     * no route
+     * @throws IOException If the file cannot be written
+     */
+    static void writeRoute(Path path, long hash, int width, int height, int[] route) 
+        throws IOException{
+        BitSet visited = new BitSet();
+        for(int cell : route)
+            visited.set(cell);
+        write(path, hash, width, height, null, route.length > 0, 
+            route, visited, new BitSet());
+    }
+
+    /** Writes a route file from its parts
+     * @param path: the path to the file
+     * @param hash: the content hash of the maze
+     * @param width: the number of tiles in a row of the maze
+     * @param height: the number of rows of the maze
+     * @param source: the absolute path of the maze file, or null
+     * @param finished: whether the exit has been reached
+     * @param route: the cells of the route, bottom first
+     * @param visited: the visited cells
+     * @param wrongPath: the cells known not to lead to the exit
+     * @return The checksum the file ends with
+     * @throws IOException If the file cannot be written
+     */
+    private static int write(Path path, long hash, int width, int height, String source, 
+        boolean finished, int[] route, BitSet visited, BitSet wrongPath) throws IOException{
+        CRC32 crc = new CRC32();
+        try(DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(path), 1 << 16), crc))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(hash);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeUTF(hint(source, path));
+            out.writeByte(finished? 1 : 0);
+
+            out.writeInt(route.length);
+            if(route.length > 0){
+                out.writeInt(route[0]);
+                out.write(directions(width, route));
+            }
+
+            writeBits(out, visited);
+            writeBits(out, wrongPath);
+
+            int checksum = (int)crc.getValue();
+            out.writeInt(checksum);
+            return checksum;
+        }
+    }
+
+    /** Loads the state of a RouteFinder. The maze is the given one,
+     * or else the one at the path kept in the file.
+     * @param path: the path to the file
+     * @param maze: the maze the route was saved for, or null to
+     * load it from the path kept in the file
+     * @return A RouteFinder in the saved state
+     * @throws IOException If the file cannot be read, is damaged,
+     * or does not belong to the maze
+     */
+    static RouteFinder read(Path path, Maze maze) throws IOException{
+        CRC32 crc = new CRC32();
+        try(DataInputStream in = new DataInputStream(new CheckedInputStream(
+            new BufferedInputStream(Files.newInputStream(path), 1 << 16), crc))){
+            if(in.readInt() != MAGIC)
+                throw new IOException("Not a route file: " + path);
+            int version = in.readInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported route file version " + version + ".");
+
+            long hash = in.readLong();
+            int width = in.readInt();
+            int height = in.readInt();
+            String hint = in.readUTF();
+            boolean finished = (in.readByte() & 1) != 0;
+
+            Maze m = maze != null? maze : loadMaze(path, hint);
+            if(m.getContentHash() != hash 
+                || m.getWidth() != width || m.getHeight() != height)
+                throw new IOException("The route file belongs to a different maze.");
+
+            int length = in.readInt();
+            if(length < 0 || length > m.getCellCount())
+                throw new IOException("The route file is damaged.");
+            int[] route = new int[Math.max(length, 16)];
+            if(length > 0){
+                byte[] moves = new byte[(length + 2) / 4];
+                route[0] = in.readInt();
+                in.readFully(moves);
+                if(!replay(m, route, length, moves))
+                    throw new IOException("The route file is damaged.");
+            }
+
+            BitSet visited = readBits(in, m.getCellCount());
+            BitSet wrongPath = readBits(in, m.getCellCount());
+
+            int expected = (int)crc.getValue();
+            if(in.readInt() != expected)
+                throw new IOException("The route file is damaged.");
+
+            return new RouteFinder(m, route, length, visited, wrongPath, finished);
+        }
+        catch(EOFException e){
+            throw new IOException("The route file is truncated: " + path, e);
+        }
+    }
+
+    /** Works out the path of the maze file to keep in a route file
+     * @param source: the absolute path of the maze file, or null
+     * @param path: the path of the route file
+     * @return The maze path relative to the folder of the route
+     * file, or absolute if there is no such path, or "" if the
+     * maze did not come from a file
+     */
+    private static String hint(String source, Path path){
+        if(source == null)
+            return "";
+
+        Path folder = path.toAbsolutePath().getParent();
+        try{
+            return folder.relativize(Paths.get(source)).toString();
+        }
+        catch(IllegalArgumentException e){
+            // e.g. another drive on Windows
+            return source;
+        }
+    }
+
+    /** Loads the maze named in a route file
+     * @param path: the path of the route file
+     * @param hint: the maze path kept in it
+     * @return The maze
+     * @throws IOException If the maze file is missing or invalid
+     */
+    private static Maze loadMaze(Path path, String hint) throws IOException{
+        if(hint.isEmpty())
+            throw new IOException("The route file does not name its maze.");
+
+        Path source = path.toAbsolutePath().getParent().resolve(hint).normalize();
+        try{
+            return source.toString().endsWith(".txt")? 
+                Maze.fromTxt(source.toString()) : Maze.fromBinary(source.toString());
+        }
+        catch(InvalidMazeException e){
+            throw new IOException("The maze of the route file is invalid: " + source, e);
+        }
+    }
+
+    /** Packs the moves along a route
+     * @param width: the number of tiles in a row of the maze
+     * @param route: the cells of the route, each next to the last
+     * @return One 2 bit direction per cell after the first
+     */
+    private static byte[] directions(int width, int[] route){
+        byte[] moves = new byte[(route.length + 2) / 4];
+        for(int i = 1; i < route.length; i++){
+            int delta = route[i] - route[i - 1];
+            // north and south first: in a maze one tile wide a
+            // step of one cell is a step of one row
+            int code;
+            if(delta == -width)
+                code = Direction.NORTH.ordinal();
+            else if(delta == width)
+                code = Direction.SOUTH.ordinal();
+            else if(delta == 1)
+                code = Direction.EAST.ordinal();
+            else
+                code = Direction.WEST.ordinal();
+            moves[(i - 1) >> 2] |= code << (((i - 1) & 3) << 1);
+        }
+        return moves;
+    }
+
+    /** Rebuilds a route from its first cell and its moves
+     * @param m: the maze of the route
+     * @param route: the array to fill, holding the first cell
+     * @param length: the number of cells on the route
+     * @param moves: the packed directions
+     * @return False if the route leaves the maze or crosses a wall
+     */
+    private static boolean replay(Maze m, int[] route, int length, byte[] moves){
+        if(route[0] < 0 || route[0] >= m.getCellCount() 
+            || m.getTypeAt(route[0]) == Tile.Type.WALL)
+            return false;
+
+        for(int i = 1; i < length; i++){
+            int code = (moves[(i - 1) >> 2] >> (((i - 1) & 3) << 1)) & 3;
+            int next = m.getAdjacentIndex(route[i - 1], DIRECTIONS[code]);
+            if(next < 0 || m.getTypeAt(next) == Tile.Type.WALL)
+                return false;
+            route[i] = next;
+        }
+        return true;
+    }
+
+    /** Writes a bitset deflated
+     * @param out: the stream to write to
+     * @param bits: the bitset
+     * @throws IOException If the stream fails
+     */
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException{
+        byte[] raw = bits.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try{
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] packed = new byte[Math.max(64, raw.length + raw.length / 1000 + 64)];
+            int size = 0;
+            while(!deflater.finished()){
+                if(size == packed.length)
+                    packed = Arrays.copyOf(packed, packed.length * 2);
+                size += deflater.deflate(packed, size, packed.length - size);
+            }
+
+            out.writeInt(raw.length);
+            out.writeInt(size);
+            out.write(packed, 0, size);
+        }
+        finally{
+            deflater.end();
+        }
+    }
+
+    /** Reads a bitset written by writeBits
+     * @param in: the stream to read from
+     * @param cells: the number of cells in the maze
+     * @return The bitset
+     * @throws IOException If the stream fails or the bitset does
+     * not fit the maze
+     */
+    private static BitSet readBits(DataInputStream in, int cells) throws IOException{
+        int rawLength = in.readInt();
+        int size = in.readInt();
+        if(rawLength < 0 || rawLength > (cells + 7) / 8 
+            || size < 0 || size > rawLength + rawLength / 1000 + 64)
+            throw new IOException("The route file is damaged.");
+
+        byte[] packed = new byte[size];
+        in.readFully(packed);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try{
+            inflater.setInput(packed);
+            int done = 0;
+            while(done < rawLength && !inflater.finished()){
+                int n = inflater.inflate(raw, done, rawLength - done);
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                done += n;
+            }
+            if(done != rawLength)
+                throw new IOException("The route file is damaged.");
+        }
+        catch(DataFormatException e){
+            throw new IOException("The route file is damaged.", e);
+        }
+        finally{
+            inflater.end();
+        }
+        return BitSet.valueOf(raw);
+    }
+}
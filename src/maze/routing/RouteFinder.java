@@ -1,14 +1,13 @@
 package maze.routing;
 
 import java.util.List;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Stack;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EmptyStackException;
+import java.util.RandomAccess;
 
 import maze.Maze;
 import maze.Tile;
@@ -20,20 +19,63 @@ import maze.Maze.Direction;
  * one maze.Maze.Direction and then switches to the next direction.
  * When no direction is left available it will backtrack to the 
  * last tile that can still go in another direction.
+ * The visited and wrong path markers belong to the RouteFinder,
+ * not to the maze, so several RouteFinders can solve one shared
+ * maze.Maze at the same time without locking. A single
+ * RouteFinder is not meant to be stepped from several threads.
+ * This is the depth first maze.routing.MazeSolver; its routes
+ * are not always the shortest.
+ * @see maze.routing.MazeSolver
  * @see maze.Maze
  * @see maze.Tile
  */
-public class RouteFinder implements Serializable {
+public class RouteFinder implements MazeSolver {
+
+    /** The result of a step that moved the head */
+    private static final int MOVED = 0;
+
+    /** The result of a step that found the head on the exit */
+    private static final int AT_EXIT = 1;
+
+    /** The result of a step that left the stack empty */
+    private static final int DEAD_END = 2;
+
+    /** The directions in the order they are tried */
+    private static final Direction[] DIRECTIONS = Direction.values();
 
     /** The maze.Maze that the RouteFinder solves */
-    private Maze maze = null;
+    private final Maze maze;
+
+    /** The attribute that holds the path, as a stack of cell
+     * indices. Only the first routeLength entries are in use.
+     */
+    private int[] route = new int[16];
+
+    /** The number of cells on the path */
+    private int routeLength = 0;
 
-    /** The attribute that holds the path */
-    private Stack<Tile> route = new Stack<Tile>();
+    /** The cells that have been visited, by cell index */
+    private BitSet visited = new BitSet();
+
+    /** The cells that are known not to lead to the exit, by cell
+     * index
+     */
+    private BitSet wrongPath = new BitSet();
+
+    /** The number of distinct cells visited so far */
+    private int expanded = 0;
 
     /** The attribute that specifies whether exit has been reached */
     private boolean finished = false;
 
+    /** The journal every step is recorded in, or null if the
+     * search is not being checkpointed
+     */
+    private RouteJournal journal = null;
+
+    /** The listener told about every changed cell, or null */
+    private RouteListener listener = null;
+
     /** The constructor of RouteFinder. Initialises the stack with
      * the entrance of the maze.
      * @param m: The Maze object to work with
@@ -41,7 +83,26 @@ public class RouteFinder implements Serializable {
      */
     public RouteFinder(Maze m){
         this.maze = m;
-        this.route.add(this.maze.getEntrance());
+        this.push(this.maze.getEntranceIndex());
+    }
+
+    /** The constructor used to restore a saved RouteFinder
+     * @param m: The Maze object to work with
+     * @param routeIn: the route stack, at least routeLengthIn long
+     * @param routeLengthIn: the number of cells on the route
+     * @param visitedIn: the visited cells
+     * @param wrongPathIn: the cells known not to lead to the exit
+     * @param finishedIn: whether the exit has been reached
+     */
+    RouteFinder(Maze m, int[] routeIn, int routeLengthIn, 
+        BitSet visitedIn, BitSet wrongPathIn, boolean finishedIn){
+        this.maze = m;
+        this.route = routeIn;
+        this.routeLength = routeLengthIn;
+        this.visited = visitedIn;
+        this.wrongPath = wrongPathIn;
+        this.expanded = visitedIn.cardinality();
+        this.finished = finishedIn;
     }
 
     /** The getter for the working maze */
@@ -49,9 +110,12 @@ public class RouteFinder implements Serializable {
         return this.maze;
     }
 
-    /** The getter for the route. Turns the stack into a list */
+    /** The getter for the route. The list is a read-only view of
+     * the stack, not a copy: it follows the RouteFinder as it
+     * steps, and its tiles are created as they are read.
+     */
     public List<Tile> getRoute(){
-        return new ArrayList<Tile>(this.route);
+        return new RouteView();
     }
 
     /** The getter for the finished attribute */
@@ -59,89 +123,355 @@ public class RouteFinder implements Serializable {
         return finished;
     }
 
-    /** Loads a RouteFinder from a serialised object
-     * @param path: the filepath to the object
-     * @return A new RouteFinder extracted from the file
-     * @throws IOException If the file cannot be read
-     * @throws ClassNotFoundException If the file is not a
-     * RouteFinder serialised object
+    /** The getter for the number of distinct tiles visited */
+    public int getNodesExpanded(){
+        return this.expanded;
+    }
+
+    /** Sets the listener that is told about the cells every step
+     * changes. Steps replayed from a checkpoint journal by load
+     * happen before any listener can be set.
+     * @param l: the listener, or null to stop listening
+     * @see maze.routing.RouteListener
+     */
+    public void setListener(RouteListener l){
+        this.listener = l;
+    }
+
+    /** Loads a RouteFinder saved by save. The maze is loaded
+     * again from the file it came from, whose path the save keeps.
+     * If the file is a checkpoint snapshot, the steps in its
+     * journal are replayed on top of it.
+     * @param path: the filepath to the saved RouteFinder
+     * @return A new RouteFinder in the saved state
+     * @throws IOException If the file cannot be read, is damaged,
+     * or its maze is missing or has changed
+     * @throws ClassNotFoundException Never; routes are no longer
+     * saved as serialised objects, but existing callers catch it
+     * @see maze.routing.RouteFile
      */
     public static RouteFinder load(String path) throws IOException, ClassNotFoundException{
-        ObjectInputStream oistream = new ObjectInputStream(
-            new FileInputStream(path)
-        );
-        RouteFinder newRF = (RouteFinder)oistream.readObject();
-        oistream.close();
+        RouteFinder rf = RouteFile.read(Paths.get(path), null);
+        RouteJournal.replay(rf, Paths.get(path));
+        return rf;
+    }
 
-        return newRF;
+    /** Loads a RouteFinder saved by save for a maze that is already
+     * loaded
+     * @param path: the filepath to the saved RouteFinder
+     * @param m: the maze the RouteFinder was saved for
+     * @return A new RouteFinder in the saved state, solving m,
+     * with any checkpoint journal replayed
+     * @throws IOException If the file cannot be read, is damaged,
+     * or was saved for another maze
+     */
+    public static RouteFinder load(String path, Maze m) throws IOException{
+        RouteFinder rf = RouteFile.read(Paths.get(path), m);
+        RouteJournal.replay(rf, Paths.get(path));
+        return rf;
     }
 
-    /** Saves the current RouteFinder in a serialised object format
-     * @param path: the filepath at which to save the object
-     * @throws IOException If the file cannot be read to
+    /** Saves the state of the RouteFinder: the content hash and
+     * file of its maze, the route as one 2 bit direction per move
+     * and the visited and wrong path cells as deflated bitsets.
+     * The maze itself is not saved.
+     * @param path: the filepath at which to save the state
+     * @throws IOException If the file cannot be written to
+     * @see maze.routing.RouteFile
      */
     public void save(String path) throws IOException{
-        if(route.isEmpty())
+        if(this.routeLength == 0)
             throw new NoRouteFoundException();
 
-        ObjectOutputStream oostream = new ObjectOutputStream(
-            new FileOutputStream(path)
-        );
+        RouteFile.write(this, Paths.get(path));
+    }
 
-        oostream.writeObject(this);
+    /** Starts checkpointing the search. A snapshot of the current
+     * state is saved at the given path, and from then on every step
+     * is recorded in a journal beside it (path + ".journal") at
+     * half a byte per step. The journal is appended to every
+     * interval steps and replaced by a new snapshot once it grows
+     * larger than the snapshot. load(path) resumes the search from
+     * the last flush.
+     * @param path: the filepath of the snapshot
+     * @param interval: the number of steps between flushes
+     * @throws IOException If the snapshot or journal cannot be
+     * written
+     * @see maze.routing.RouteJournal
+     */
+    public void startCheckpoints(String path, int interval) throws IOException{
+        this.stopCheckpoints();
+        this.journal = new RouteJournal(this, Paths.get(path), interval);
+    }
 
-        oostream.flush();
-        oostream.close();
+    /** Appends the steps taken since the last flush to the journal
+     * right away
+     * @throws IOException If the journal cannot be written
+     */
+    public void checkpoint() throws IOException{
+        if(this.journal != null)
+            this.journal.flush();
+    }
+
+    /** Replaces the checkpoint snapshot with the current state and
+     * empties the journal
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void compactCheckpoints() throws IOException{
+        if(this.journal != null)
+            this.journal.compact();
+    }
+
+    /** Flushes the journal and stops checkpointing. The snapshot
+     * and journal are left for load.
+     * @throws IOException If the journal cannot be written
+     */
+    public void stopCheckpoints() throws IOException{
+        if(this.journal != null){
+            RouteJournal old = this.journal;
+            this.journal = null;
+            old.close();
+        }
     }
 
     /** Progresses one step through the maze i.e. either adds
      * one element to the stack or removes one.
      * @return True if the exit is found, false otherwise
      * @throws NoRouteFoundException If the maze is found to be
-     * unsolvable. That happens if all tiles that are connected
-     * to entrance have been visited and none of them was an
-     * exit.
+     * unsolvable. That is known before the first step, since
+     * maze.Maze#isSolvable tells whether the entrance and the exit
+     * are connected at all.
+     * @throws java.io.UncheckedIOException If the search is being
+     * checkpointed and the journal cannot be written
      */
     public boolean step() throws NoRouteFoundException{
-        if(route.isEmpty())
+        if(this.routeLength == 0 || !this.getMaze().isSolvable())
+            throw new NoRouteFoundException();
+
+        int moved = this.advance();
+        if(moved == DEAD_END)
             throw new NoRouteFoundException();
-            
-        Tile curTile = route.peek().visit();
+        return moved == AT_EXIT;
+    }
+
+    /** Runs the search until the exit is reached or the maze is
+     * found to be unsolvable
+     * @return The result of the run
+     * @see maze.routing.RouteFinder#runToCompletion
+     */
+    public SolveResult solve(){
+        return this.runToCompletion(Long.MAX_VALUE);
+    }
+
+    /** Runs the same search as step(), in a tight loop and without
+     * exceptions. The RouteFinder is left exactly as the same
+     * number of step() calls would have left it, so stepping or
+     * saving can go on afterwards.
+     * @param maxSteps: the most steps the run may take
+     * @return The result of the run. The steps taken count the
+     * steps of this run only.
+     */
+    public SolveResult runToCompletion(long maxSteps){
+        long steps = 0;
+        // the components say at once if the search would be in vain
+        int moved = this.routeLength == 0 || !this.getMaze().isSolvable()? 
+            DEAD_END : MOVED;
+
+        while(moved == MOVED && steps < maxSteps){
+            moved = this.advance();
+            steps++;
+        }
+
+        // an unsolvable maze has no route, even when the components
+        // stopped the search with the entrance still on the stack
+        if(moved == DEAD_END)
+            return new SolveResult(SolveResult.Outcome.NO_ROUTE, 
+                Routes.toTiles(this.getMaze(), new int[0]), steps);
+
+        // the result keeps the route as it is now, not a live view
+        List<Tile> route = Routes.toTiles(this.getMaze(), 
+            Arrays.copyOf(this.route, this.routeLength));
+        if(moved == AT_EXIT)
+            return new SolveResult(SolveResult.Outcome.FOUND, route, steps);
+        return new SolveResult(SolveResult.Outcome.STEP_LIMIT, route, steps);
+    }
+
+    /** The body of a step. The stack must not be empty.
+     * @return AT_EXIT if the head is the exit, DEAD_END if the
+     * step emptied the stack and MOVED otherwise
+     */
+    private int advance(){
+        Maze m = this.getMaze();
+        int cur = this.route[this.routeLength - 1];
+        if(!this.visited.get(cur)){
+            this.visited.set(cur);
+            this.expanded++;
+            if(this.listener != null)
+                this.listener.tileVisited(cur);
+        }
         
-        if(curTile.equals(this.getMaze().getExit())){
-            this.finished = true;
-            return true;
+        if(cur == m.getExitIndex()){
+            // later steps at the exit change nothing, so they are
+            // not recorded again
+            if(!this.finished){
+                this.finished = true;
+                this.record(RouteJournal.FINISH);
+            }
+            return AT_EXIT;
         }
 
-        for(Direction d: Direction.values()){
-            Tile t = this.getMaze().getAdjacentTile(curTile, d);
-            if(t != null && t.isNavigable()){
-                this.route.add(t);
-                return false;
+        for(Direction d: DIRECTIONS){
+            int next = m.getAdjacentIndex(cur, d);
+            if(next >= 0 && m.getTypeAt(next) != Tile.Type.WALL
+                && !this.visited.get(next)){
+                this.push(next);
+                this.record(d.ordinal());
+                if(this.listener != null)
+                    this.listener.headMoved(cur, next);
+                return MOVED;
             }
         }
 
-        route.pop().leave();
-        if(route.isEmpty())
+        this.wrongPath.set(cur);
+        this.routeLength--;
+        this.record(RouteJournal.POP);
+        if(this.listener != null){
+            this.listener.tileLeft(cur);
+            this.listener.headMoved(cur, 
+                this.routeLength == 0? -1 : this.route[this.routeLength - 1]);
+        }
+        return this.routeLength == 0? DEAD_END : MOVED;
+    }
+
+    /** Records the outcome of a step in the journal, if any
+     * @param code: the step code
+     */
+    private void record(int code){
+        if(this.journal != null)
+            this.journal.record(code);
+    }
+
+    /** Redoes a step recorded in a journal. The same cells are
+     * marked as the step marked when it was taken.
+     * @param code: the step code
+     * @return False if the step cannot have been taken from the
+     * current state
+     */
+    boolean apply(int code){
+        if(this.routeLength == 0)
+            return false;
+
+        Maze m = this.getMaze();
+        int cur = this.route[this.routeLength - 1];
+        if(code < DIRECTIONS.length){
+            int next = m.getAdjacentIndex(cur, DIRECTIONS[code]);
+            if(this.finished || next < 0 || m.getTypeAt(next) == Tile.Type.WALL 
+                || this.visited.get(next))
+                return false;
+            this.push(next);
+        }
+        else if(code == RouteJournal.POP && cur != m.getExitIndex())
+            this.wrongPath.set(cur);
+        else if(code == RouteJournal.FINISH && cur == m.getExitIndex())
+            this.finished = true;
+        else
+            return false;
+
+        if(!this.visited.get(cur)){
+            this.visited.set(cur);
+            this.expanded++;
+        }
+        if(code == RouteJournal.POP)
+            this.routeLength--;
+        return true;
+    }
+
+    /** Pushes a cell on top of the stack, growing it if needed
+     * @param cell: the index of the cell
+     */
+    private void push(int cell){
+        if(this.routeLength == this.route.length)
+            this.route = Arrays.copyOf(this.route, this.routeLength * 2);
+        this.route[this.routeLength++] = cell;
+    }
+
+    /** Getter for a copy of the route stack, bottom first */
+    int[] getRouteCells(){
+        return Arrays.copyOf(this.route, this.routeLength);
+    }
+
+    /** Getter for the visited cells; the set is not copied */
+    BitSet getVisitedCells(){
+        return this.visited;
+    }
+
+    /** Getter for the wrong path cells; the set is not copied */
+    BitSet getWrongPathCells(){
+        return this.wrongPath;
+    }
+
+    /** Checks whether a tile has been visited by this RouteFinder
+     * @param t: the tile to check
+     * @return True if the tile was visited
+     */
+    public boolean isVisited(Tile t){
+        int index = this.getMaze().getIndex(t);
+        return index >= 0 && this.visited.get(index);
+    }
+
+    /** Checks whether this RouteFinder has decided that a tile is
+     * not on the right path to the exit
+     * @param t: the tile to check
+     * @return True if the tile has been left for good
+     */
+    public boolean isWrongPath(Tile t){
+        int index = this.getMaze().getIndex(t);
+        return index >= 0 && this.wrongPath.get(index);
+    }
+
+    /** Checks whether a cell has been visited, without creating a
+     * tile for it
+     * @param index: the index of the cell
+     * @return True if the cell was visited
+     */
+    public boolean isVisited(int index){
+        return index >= 0 && this.visited.get(index);
+    }
+
+    /** Checks whether a cell is known not to lead to the exit,
+     * without creating a tile for it
+     * @param index: the index of the cell
+     * @return True if the cell has been left for good
+     */
+    public boolean isWrongPath(int index){
+        return index >= 0 && this.wrongPath.get(index);
+    }
+
+    /** Runs the search until the exit is reached
+     * @return The route from the entrance to the exit
+     * @throws NoRouteFoundException If the maze is unsolvable
+     */
+    public List<Tile> findRoute() throws NoRouteFoundException{
+        SolveResult result = this.solve();
+        if(!result.isFound())
             throw new NoRouteFoundException();
-        return false;
+        return result.getRoute();
     }
 
-    /** Parses the RouteFinder to String format */
+    /** Parses the RouteFinder to String format. Starts from the
+     * text of the maze and only overwrites the marked cells.
+     */
     public String toString(){
-        String txt = "";
-
-        List<List<Tile>> tiles = this.getMaze().getTiles();
+        Maze m = this.getMaze();
+        char[] txt = m.toString().toCharArray();
 
-        for(List<Tile> row: tiles){
-            for(Tile t: row)
-                if(t.isWrongPath()) txt += "-";
-                else if(t.isVisited()) txt += "*";
-                else txt += t.toString();
-            txt += "\n";
-        }  
+        // every row is followed by a newline, hence the offset
+        for(int i = this.visited.nextSetBit(0); i >= 0; 
+            i = this.visited.nextSetBit(i + 1))
+            txt[i + i / m.getWidth()] = 
+                this.wrongPath.get(i)? '-' : '*';
 
-        return txt;
+        return new String(txt);
     }
     
     // UML EXTENSION
@@ -150,6 +480,30 @@ public class RouteFinder implements Serializable {
      * because it's visually more like a queue (snake).
      */
     public Tile getHead(){
-        return this.route.peek();
+        if(this.routeLength == 0)
+            throw new EmptyStackException();
+        return this.getMaze().getTile(this.route[this.routeLength - 1]);
+    }
+
+    /** The getter for the cell index of the head
+     * @return The index, or -1 if the stack is empty
+     */
+    public int getHeadIndex(){
+        return this.routeLength == 0? -1 : this.route[this.routeLength - 1];
+    }
+
+    /** A read-only view of the route stack, bottom first */
+    private class RouteView extends AbstractList<Tile> 
+        implements RandomAccess{
+
+        public Tile get(int i){
+            if(i < 0 || i >= routeLength)
+                throw new IndexOutOfBoundsException("Index " + i);
+            return getMaze().getTile(route[i]);
+        }
+
+        public int size(){
+            return routeLength;
+        }
     }
 }
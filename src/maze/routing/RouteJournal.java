@@ -0,0 +1,244 @@
+package maze.routing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/** The incremental checkpoints of a maze.routing.RouteFinder. The
+ * state is kept as a snapshot, a route file written by RouteFile,
+ * plus a journal beside it that the outcome of every step since the
+ * snapshot is appended to. Replaying the journal over the snapshot
+ * gives back the state as of the last flush.
+ *
+ * The journal is named after the snapshot with ".journal" added.
+ * It starts with the magic "RJNL", the version and the checksum at
+ * the end of its snapshot, so a journal left over from an older
+ * snapshot is ignored. Then come records, one per flush: the number
+ * of steps, one 4 bit step code per step, two to a byte, lowest
+ * bits first, and a CRC32 of the record. A record cut short by a
+ * crash fails its check and ends the replay.
+ *
+ * Once the journal outgrows the snapshot, a new snapshot is written
+ * and the journal starts over. The snapshot is written to a
+ * temporary file and moved into place, so a crash at any point
+ * leaves a snapshot and journal that agree, or a journal that is
+ * ignored because the snapshot already holds its steps.
+ * @see maze.routing.RouteFinder
+ * @see maze.routing.RouteFile
+ */
+final class RouteJournal implements Closeable {
+
+    /** The first four bytes of every journal, "RJNL" */
+    static final int MAGIC = 0x524a4e4c;
+
+    /** The version written by this class */
+    static final int VERSION = 1;
+
+    /** The step codes: codes 0 to 3 are a push in the
+     * maze.Maze.Direction of that ordinal
+     */
+    static final int POP = 4;
+    static final int FINISH = 5;
+
+    /** The number of bytes before the first record */
+    private static final int HEADER = 12;
+
+    /** The RouteFinder being checkpointed */
+    private final RouteFinder rf;
+
+    /** The snapshot file */
+    private final Path snapshot;
+
+    /** The journal file */
+    private final Path file;
+
+    /** The number of steps between flushes */
+    private final int interval;
+
+    /** The steps recorded since the last flush, packed */
+    private final byte[] pending;
+
+    /** The number of steps in pending */
+    private int count = 0;
+
+    /** The open journal */
+    private FileChannel channel = null;
+
+    /** The size of the snapshot file */
+    private long snapshotSize = 0;
+
+    /** The constructor writes a first snapshot and starts an empty
+     * journal
+     * @param rfIn: the RouteFinder to checkpoint
+     * @param snapshotIn: the path of the snapshot file
+     * @param intervalIn: the number of steps between flushes
+     * @throws IOException If the files cannot be written
+     */
+    RouteJournal(RouteFinder rfIn, Path snapshotIn, int intervalIn) throws IOException{
+        if(intervalIn < 1)
+            throw new IllegalArgumentException("Interval must be at least 1.");
+        this.rf = rfIn;
+        this.snapshot = snapshotIn;
+        this.file = journalOf(snapshotIn);
+        this.interval = intervalIn;
+        this.pending = new byte[(intervalIn + 1) / 2];
+        this.compact();
+    }
+
+    /** Getter for the journal file of a snapshot
+     * @param snapshot: the path of the snapshot file
+     * @return The path of its journal
+     */
+    static Path journalOf(Path snapshot){
+        return snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+    }
+
+    /** Records the outcome of one step, flushing every interval
+     * steps. Called from the stepping loop, so a failed flush is
+     * rethrown unchecked.
+     * @param code: the step code
+     * @throws UncheckedIOException If a flush fails
+     */
+    void record(int code){
+        this.pending[this.count >> 1] |= code << ((this.count & 1) << 2);
+        if(++this.count == this.interval){
+            try{
+                this.flush();
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /** Appends the recorded steps to the journal, compacting it
+     * if it has grown larger than the snapshot
+     * @throws IOException If the journal cannot be written
+     */
+    void flush() throws IOException{
+        if(this.count == 0)
+            return;
+
+        int bytes = (this.count + 1) / 2;
+        ByteBuffer record = ByteBuffer.allocate(8 + bytes);
+        record.putInt(this.count).put(this.pending, 0, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, 4 + bytes);
+        record.putInt((int)crc.getValue()).flip();
+        while(record.hasRemaining())
+            this.channel.write(record);
+
+        Arrays.fill(this.pending, 0, bytes, (byte)0);
+        this.count = 0;
+
+        if(this.channel.size() > this.snapshotSize)
+            this.compact();
+    }
+
+    /** Replaces the snapshot with the current state and empties the
+     * journal
+     * @throws IOException If the files cannot be written
+     */
+    void compact() throws IOException{
+        Path temporary = this.snapshot.resolveSibling(this.snapshot.getFileName() + ".tmp");
+        int checksum = RouteFile.write(this.rf, temporary);
+        try{
+            Files.move(temporary, this.snapshot, 
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e){
+            Files.move(temporary, this.snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.snapshotSize = Files.size(this.snapshot);
+
+        // the pending steps are part of the new snapshot
+        Arrays.fill(this.pending, (byte)0);
+        this.count = 0;
+
+        if(this.channel != null)
+            this.channel.close();
+        this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE, 
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(checksum).flip();
+        while(header.hasRemaining())
+            this.channel.write(header);
+    }
+
+    /** Flushes the recorded steps and closes the journal */
+    @Override
+    public void close() throws IOException{
+        try{
+            this.flush();
+        }
+        finally{
+            this.channel.close();
+        }
+    }
+
+    /** Replays the journal of a snapshot, if there is one that
+     * belongs to it, over the RouteFinder loaded from the snapshot
+     * @param rf: the RouteFinder in the state of the snapshot
+     * @param snapshot: the path of the snapshot file
+     * @throws IOException If the journal cannot be read, or a step
+     * that passed its check does not fit the route
+     */
+    static void replay(RouteFinder rf, Path snapshot) throws IOException{
+        Path file = journalOf(snapshot);
+        if(!Files.exists(file))
+            return;
+
+        ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(file));
+        if(journal.remaining() < HEADER || journal.getInt() != MAGIC 
+            || journal.getInt() != VERSION || journal.getInt() != checksum(snapshot))
+            return;
+
+        CRC32 crc = new CRC32();
+        while(journal.remaining() >= 8){
+            int start = journal.position();
+            int count = journal.getInt();
+            int bytes = (int)((count + 1L) / 2);
+            if(count <= 0 || journal.remaining() < bytes + 4)
+                return;
+
+            crc.reset();
+            crc.update(journal.array(), start, 4 + bytes);
+            if(journal.getInt(start + 4 + bytes) != (int)crc.getValue())
+                return;
+
+            for(int i = 0; i < count; i++){
+                int code = (journal.get(start + 4 + (i >> 1)) >> ((i & 1) << 2)) & 15;
+                if(!rf.apply(code))
+                    throw new IOException("The journal does not fit its snapshot: " + file);
+            }
+            journal.position(start + 8 + bytes);
+        }
+    }
+
+    /** Reads the checksum a route file ends with
+     * @param snapshot: the path of the route file
+     * @return The checksum
+     * @throws IOException If the file cannot be read
+     */
+    private static int checksum(Path snapshot) throws IOException{
+        try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)){
+            ByteBuffer last = ByteBuffer.allocate(4);
+            long at = channel.size() - 4;
+            while(last.hasRemaining() && at >= 0){
+                int n = channel.read(last, at + last.position());
+                if(n < 0)
+                    break;
+            }
+            return last.getInt(0);
+        }
+    }
+}
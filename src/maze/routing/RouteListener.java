@@ -0,0 +1,31 @@
+package maze.routing;
+
+/** Interface for following a maze.routing.RouteFinder step by
+ * step. Each step changes at most two cells, and the listener is
+ * told which, so a view of the search only has to redraw those.
+ * Cells are given by index, row * width + column with rows counted
+ * from the top, as in maze.Maze#getTile. The listener is called on
+ * the thread that steps the RouteFinder, after its state has
+ * changed, so the RouteFinder can be queried from the call.
+ * @see maze.routing.RouteFinder#setListener
+ */
+public interface RouteListener {
+
+    /** Called when the search visits a cell for the first time
+     * @param index: the index of the cell
+     */
+    void tileVisited(int index);
+
+    /** Called when the search backs out of a cell for good, i.e.
+     * the cell is now known to be on a wrong path
+     * @param index: the index of the cell
+     */
+    void tileLeft(int index);
+
+    /** Called when the top of the route stack changes
+     * @param from: the index of the old head
+     * @param to: the index of the new head, or -1 if the stack
+     * is empty and the maze is unsolvable
+     */
+    void headMoved(int from, int to);
+}
@@ -0,0 +1,108 @@
+package maze.routing;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import maze.Maze;
+import maze.Tile;
+
+/** Helpers shared by the solvers that search the maze by cell
+ * index rather than by maze.Tile.
+ * @see maze.Maze#getAdjacentIndex
+ */
+final class Routes {
+
+    /** Not instantiable */
+    private Routes(){ }
+
+    /** Lists the navigable neighbours of a cell in the order of
+     * maze.Maze.Direction: north, east, south, west.
+     * @param m: the maze being searched
+     * @param cell: the index of the cell
+     * @param out: an array with room for four indices
+     * @return The number of neighbours written to out
+     */
+    static int openNeighbours(Maze m, int cell, int[] out){
+        int width = m.getWidth();
+        int column = cell % width;
+        int count = 0;
+
+        if(cell >= width && isOpen(m, cell - width))
+            out[count++] = cell - width;
+        if(column < width - 1 && isOpen(m, cell + 1))
+            out[count++] = cell + 1;
+        if(cell + width < m.getCellCount() && isOpen(m, cell + width))
+            out[count++] = cell + width;
+        if(column > 0 && isOpen(m, cell - 1))
+            out[count++] = cell - 1;
+
+        return count;
+    }
+
+    /** Checks whether a cell can be walked on
+     * @param m: the maze being searched
+     * @param cell: the index of the cell
+     * @return False if the cell is a wall, true otherwise
+     */
+    static boolean isOpen(Maze m, int cell){
+        return m.getTypeAt(cell) != Tile.Type.WALL;
+    }
+
+    /** Follows a parent array back from a cell to the start of
+     * the search. The start is the cell that is its own parent.
+     * @param parent: the parent of every reached cell
+     * @param goal: the cell to start tracing from
+     * @return The cells from the start of the search to goal
+     */
+    static int[] trace(int[] parent, int goal){
+        int length = 1;
+        for(int c = goal; parent[c] != c; c = parent[c])
+            length++;
+
+        int[] route = new int[length];
+        for(int c = goal, i = length - 1; i >= 0; c = parent[c], i--)
+            route[i] = c;
+
+        return route;
+    }
+
+    /** Turns a sequence of cell indices into tiles, without
+     * copying: the list is a read-only view of the array and its
+     * tiles are created as they are read
+     * @param m: the maze the cells belong to
+     * @param cells: the cell indices
+     * @return A list with a tile for every index
+     */
+    static List<Tile> toTiles(Maze m, int[] cells){
+        return new CellList(m, cells);
+    }
+
+    /** A read-only list of tiles backed by an array of cells */
+    private static class CellList extends AbstractList<Tile> 
+        implements RandomAccess{
+
+        /** The maze the cells belong to */
+        private final Maze maze;
+
+        /** The cell indices */
+        private final int[] cells;
+
+        /** The constructor of the view
+         * @param m: the maze the cells belong to
+         * @param cellsIn: the cell indices
+         */
+        private CellList(Maze m, int[] cellsIn){
+            this.maze = m;
+            this.cells = cellsIn;
+        }
+
+        public Tile get(int i){
+            return this.maze.getTile(this.cells[i]);
+        }
+
+        public int size(){
+            return this.cells.length;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package maze.routing;
+
+import java.util.List;
+
+import maze.Tile;
+
+/** The outcome of running a solver in one go rather than step by
+ * step: whether the exit was found, the route at the end of the
+ * run and how many steps the run took.
+ * @see maze.routing.RouteFinder#solve
+ * @see maze.routing.RouteFinder#runToCompletion
+ */
+public class SolveResult {
+
+    /** The way the run ended */
+    private final Outcome outcome;
+
+    /** The route when the run ended */
+    private final List<Tile> route;
+
+    /** The number of steps taken by the run */
+    private final long steps;
+
+    /** The constructor of SolveResult
+     * @param outcomeIn: the way the run ended
+     * @param routeIn: the route when the run ended
+     * @param stepsIn: the number of steps taken
+     */
+    SolveResult(Outcome outcomeIn, List<Tile> routeIn, long stepsIn){
+        this.outcome = outcomeIn;
+        this.route = routeIn;
+        this.steps = stepsIn;
+    }
+
+    /** The getter for the way the run ended */
+    public Outcome getOutcome(){
+        return this.outcome;
+    }
+
+    /** The getter for whether the exit was reached */
+    public boolean isFound(){
+        return this.outcome == Outcome.FOUND;
+    }
+
+    /** The getter for the route. It leads from the entrance to
+     * the exit if the exit was found, it is the partial route if
+     * the run hit its step limit and it is empty if the maze is
+     * unsolvable.
+     */
+    public List<Tile> getRoute(){
+        return this.route;
+    }
+
+    /** The getter for the number of steps taken by the run */
+    public long getSteps(){
+        return this.steps;
+    }
+
+    /** Parses the result to String format */
+    public String toString(){
+        return this.outcome + " after " + this.steps + " steps, route of " 
+            + this.route.size() + " tiles";
+    }
+
+    /** The inner enum that specifies how a run can end. FOUND means
+     * the exit was reached, NO_ROUTE that the maze is unsolvable and
+     * STEP_LIMIT that the run ran out of steps first.
+     */
+    public enum Outcome{
+        FOUND,
+        NO_ROUTE,
+        STEP_LIMIT;
+    }
+}
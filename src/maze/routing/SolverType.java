@@ -0,0 +1,64 @@
+package maze.routing;
+
+import maze.Maze;
+
+/** The kinds of maze.routing.MazeSolver, so that a solver can be
+ * chosen by name, e.g. on a command line or in a request
+ * @see maze.routing.MazeSolver
+ */
+public enum SolverType {
+    DFS("dfs"),
+    BFS("bfs"),
+    ASTAR("astar"),
+    JPS("jps"),
+    BIDIRECTIONAL("bidirectional"),
+    PARALLEL_BFS("parallel-bfs");
+
+    /** The name of the solver on the command line */
+    private final String name;
+
+    /** The constructor
+     * @param nameIn: the name of the solver
+     */
+    SolverType(String nameIn){
+        this.name = nameIn;
+    }
+
+    /** Getter for the name of the solver */
+    public String getName(){
+        return this.name;
+    }
+
+    /** Creates a solver of this kind
+     * @param m: the maze to solve
+     * @return A new solver that has not started searching
+     */
+    public MazeSolver create(Maze m){
+        switch(this){
+            case DFS:
+                return new RouteFinder(m);
+            case BFS:
+                return new BreadthFirstSolver(m);
+            case ASTAR:
+                return new AStarSolver(m);
+            case JPS:
+                return new JumpPointSolver(m);
+            case BIDIRECTIONAL:
+                return new BidirectionalSolver(m);
+            default:
+                return new ParallelBreadthFirstSolver(m);
+        }
+    }
+
+    /** Finds a solver by name
+     * @param name: the name of the solver, e.g. "bfs"
+     * @return The kind of solver
+     * @throws IllegalArgumentException If there is no such solver
+     */
+    public static SolverType fromName(String name){
+        for(SolverType t : values())
+            if(t.name.equals(name))
+                return t;
+        throw new IllegalArgumentException("Unknown solver " + name);
+    }
+}
@@ -0,0 +1,110 @@
+package maze.service;
+
+/** The totals of a run of maze.service.BatchSolver
+ * @see maze.service.BatchSolver
+ */
+public class BatchReport {
+
+    /** The number of files handled */
+    private int files = 0;
+
+    /** The number of mazes solved */
+    private int found = 0;
+
+    /** The number of valid mazes without a route */
+    private int noRoute = 0;
+
+    /** The number of files that were not valid mazes */
+    private int invalid = 0;
+
+    /** The number of files that could not be read or solved */
+    private int failed = 0;
+
+    /** The total number of cells in the valid mazes */
+    private long cells = 0;
+
+    /** The wall clock time of the run */
+    private long elapsedNanos = 0;
+
+    /** Counts one file
+     * @param status: the status written for it
+     * @param cellCount: the number of cells in its maze, 0 if it
+     * was not parsed
+     */
+    synchronized void count(String status, long cellCount){
+        this.files++;
+        this.cells += cellCount;
+        switch(status){
+            case BatchSolver.FOUND:
+                this.found++;
+                break;
+            case BatchSolver.NO_ROUTE:
+                this.noRoute++;
+                break;
+            case BatchSolver.INVALID:
+                this.invalid++;
+                break;
+            default:
+                this.failed++;
+        }
+    }
+
+    /** Sets the wall clock time of the run
+     * @param nanos: the time in nanoseconds
+     */
+    synchronized void finish(long nanos){
+        this.elapsedNanos = nanos;
+    }
+
+    /** Getter for the number of files handled */
+    public synchronized int getFiles(){
+        return this.files;
+    }
+
+    /** Getter for the number of mazes solved */
+    public synchronized int getFound(){
+        return this.found;
+    }
+
+    /** Getter for the number of valid mazes without a route */
+    public synchronized int getNoRoute(){
+        return this.noRoute;
+    }
+
+    /** Getter for the number of files that were not valid mazes */
+    public synchronized int getInvalid(){
+        return this.invalid;
+    }
+
+    /** Getter for the number of files that could not be read or
+     * solved for other reasons
+     */
+    public synchronized int getFailed(){
+        return this.failed;
+    }
+
+    /** Getter for the wall clock time of the run in seconds */
+    public synchronized double getSeconds(){
+        return this.elapsedNanos / 1e9;
+    }
+
+    /** Getter for the number of files handled per second */
+    public synchronized double getMazesPerSecond(){
+        return this.elapsedNanos == 0? 0 : this.files * 1e9 / this.elapsedNanos;
+    }
+
+    /** Getter for the number of maze cells handled per second */
+    public synchronized double getCellsPerSecond(){
+        return this.elapsedNanos == 0? 0 : this.cells * 1e9 / this.elapsedNanos;
+    }
+
+    /** Method for parsing the report to a single JSON line */
+    public synchronized String toString(){
+        return new Json().add("files", this.files).add("found", this.found)
+            .add("no_route", this.noRoute).add("invalid", this.invalid)
+            .add("failed", this.failed).add("cells", this.cells)
+            .add("seconds", this.getSeconds())
+            .add("mazes_per_second", this.getMazesPerSecond())
+            .add("cells_per_second", this.getCellsPerSecond()).toString();
+    }
+}
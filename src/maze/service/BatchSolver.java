@@ -0,0 +1,356 @@
+package maze.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import maze.InvalidMazeException;
+import maze.Maze;
+import maze.Tile;
+import maze.routing.MazeSolver;
+import maze.routing.NoRouteFoundException;
+import maze.routing.RouteCache;
+import maze.routing.SolverType;
+
+/** Solves many maze files in one JVM. Every file goes through two
+ * stages on separate executors: parsing, which is mostly I/O, and
+ * solving, which is CPU bound, so one file is read while another
+ * is solved. At most twice as many files as there are threads are
+ * between the two stages at once, which bounds the memory held by
+ * parsed mazes however long the list is.
+ *
+ * Each file gives one JSON line, written as soon as it is done:
+ * file, status (found, no_route, invalid or error), solver, size,
+ * route length, nodes expanded, parse and solve time in
+ * milliseconds, and the reason for a failure. A bad file only
+ * fails its own line. With a route cache, a maze whose route is
+ * cached is not searched, and its line says "cached":true.
+ * @see maze.service.BatchReport
+ * @see maze.routing.SolverType
+ */
+public class BatchSolver {
+
+    /** The statuses of a file */
+    static final String FOUND = "found";
+    static final String NO_ROUTE = "no_route";
+    static final String INVALID = "invalid";
+    static final String ERROR = "error";
+
+    /** The kind of solver used for every maze */
+    private final SolverType solver;
+
+    /** The number of files parsed and of mazes solved at once */
+    private final int threads;
+
+    /** Whether each maze is solved on its own virtual thread */
+    private final boolean virtual;
+
+    /** The cache mazes are parsed through, or null */
+    private final MazeCache cache;
+
+    /** The cache routes are looked up in, or null */
+    private final RouteCache routes;
+
+    /** The constructor
+     * @param solverIn: the kind of solver to use
+     * @param threadsIn: the number of files parsed and of mazes
+     * solved at once
+     * @param virtualIn: whether to solve each maze on its own
+     * virtual thread, if the JVM has them (Java 21 and later)
+     */
+    public BatchSolver(SolverType solverIn, int threadsIn, boolean virtualIn){
+        this(solverIn, threadsIn, virtualIn, null);
+    }
+
+    /** The constructor for batches that parse through a cache, so a
+     * file listed again, or solved again by a later batch, is not
+     * parsed again
+     * @param solverIn: the kind of solver to use
+     * @param threadsIn: the number of files parsed and of mazes
+     * solved at once
+     * @param virtualIn: whether to solve each maze on its own
+     * virtual thread, if the JVM has them (Java 21 and later)
+     * @param cacheIn: the cache to parse through, or null
+     */
+    public BatchSolver(SolverType solverIn, int threadsIn, boolean virtualIn, 
+        MazeCache cacheIn){
+        this(solverIn, threadsIn, virtualIn, cacheIn, null);
+    }
+
+    /** The constructor for batches that also look routes up in a
+     * cache, so a maze solved before is not searched again. If both
+     * caches are given, a maze file that changes drops the routes
+     * of its old content.
+     * @param solverIn: the kind of solver to use
+     * @param threadsIn: the number of files parsed and of mazes
+     * solved at once
+     * @param virtualIn: whether to solve each maze on its own
+     * virtual thread, if the JVM has them (Java 21 and later)
+     * @param cacheIn: the cache to parse through, or null
+     * @param routesIn: the cache of routes, or null
+     */
+    public BatchSolver(SolverType solverIn, int threadsIn, boolean virtualIn, 
+        MazeCache cacheIn, RouteCache routesIn){
+        this.solver = solverIn;
+        this.threads = Math.max(1, threadsIn);
+        this.virtual = virtualIn;
+        this.cache = cacheIn;
+        this.routes = routesIn;
+        if(cacheIn != null && routesIn != null)
+            cacheIn.addInvalidationListener((file, old) -> routesIn.invalidate(old));
+    }
+
+    /** Lists the maze files to solve
+     * @param input: a directory, whose .txt and .bin files are
+     * taken in name order, or a manifest listing one file per line,
+     * relative to the manifest; blank lines and lines starting
+     * with # are skipped
+     * @return The files
+     * @throws IOException If the input cannot be read
+     */
+    public static List<Path> listInput(Path input) throws IOException{
+        if(Files.isDirectory(input)){
+            try(Stream<Path> files = Files.list(input)){
+                return files.filter(p -> Files.isRegularFile(p))
+                    .filter(p -> p.toString().endsWith(".txt") || p.toString().endsWith(".bin"))
+                    .sorted().collect(Collectors.toList());
+            }
+        }
+
+        List<Path> files = new ArrayList<>();
+        Path folder = input.toAbsolutePath().getParent();
+        for(String line : Files.readAllLines(input)){
+            line = line.trim();
+            if(!line.isEmpty() && !line.startsWith("#"))
+                files.add(folder.resolve(line));
+        }
+        return files;
+    }
+
+    /** Solves every file, writing a JSON line for each
+     * @param files: the maze files, .txt for the text format and
+     * anything else for the binary one
+     * @param out: where the lines are written, in the order the
+     * files finish
+     * @return The totals of the run
+     * @throws IOException If the output cannot be written
+     * @throws InterruptedException If the thread is interrupted
+     * while waiting for the files
+     */
+    public BatchReport run(List<Path> files, Writer out) 
+        throws IOException, InterruptedException{
+        BatchReport report = new BatchReport();
+        AtomicReference<IOException> writeError = new AtomicReference<>();
+        int window = 2 * this.threads;
+        Semaphore inFlight = new Semaphore(window);
+
+        ExecutorService parsers = ThreadPools.create(this.threads, false);
+        ExecutorService solvers = ThreadPools.create(this.threads, this.virtual);
+        long start = System.nanoTime();
+        try{
+            for(Path file : files){
+                inFlight.acquire();
+                CompletableFuture.supplyAsync(() -> this.parse(file), parsers)
+                    .thenApplyAsync(this::solve, solvers)
+                    .whenComplete((job, e) -> {
+                        try{
+                            if(e != null)
+                                job = Job.failed(file, ERROR, e);
+                            report.count(job.status, job.cells);
+                            synchronized(out){
+                                out.write(job.toJson(this.solver));
+                                out.write('\n');
+                            }
+                        }
+                        catch(IOException ioe){
+                            writeError.compareAndSet(null, ioe);
+                        }
+                        finally{
+                            inFlight.release();
+                        }
+                    });
+            }
+            // every file is done once all the permits are back
+            inFlight.acquire(window);
+        }
+        finally{
+            parsers.shutdown();
+            solvers.shutdown();
+            parsers.awaitTermination(1, TimeUnit.MINUTES);
+            solvers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        report.finish(System.nanoTime() - start);
+
+        if(writeError.get() != null)
+            throw writeError.get();
+        out.flush();
+        return report;
+    }
+
+    /** The parse stage
+     * @param file: the maze file
+     * @return The job, holding the maze or the reason it failed
+     */
+    private Job parse(Path file){
+        long start = System.nanoTime();
+        try{
+            Maze m;
+            if(this.cache != null)
+                m = this.cache.get(file);
+            else
+                m = file.toString().endsWith(".txt")? 
+                    Maze.fromTxt(file.toString()) : Maze.fromBinary(file.toString());
+            Job job = new Job(file, m);
+            job.parseNanos = System.nanoTime() - start;
+            return job;
+        }
+        catch(InvalidMazeException e){
+            return Job.failed(file, INVALID, e);
+        }
+        catch(IOException | RuntimeException e){
+            return Job.failed(file, ERROR, e);
+        }
+    }
+
+    /** The solve stage
+     * @param job: the job from the parse stage
+     * @return The same job, with its outcome
+     */
+    private Job solve(Job job){
+        if(job.maze == null)
+            return job;
+
+        long start = System.nanoTime();
+        if(this.routes != null && this.lookUp(job)){
+            job.solveNanos = System.nanoTime() - start;
+            job.maze = null;
+            return job;
+        }
+
+        MazeSolver s = this.solver.create(job.maze);
+        try{
+            List<Tile> route = s.findRoute();
+            job.routeLength = route.size();
+            job.status = FOUND;
+            if(this.routes != null)
+                this.routes.put(job.maze, this.solver, route);
+        }
+        catch(NoRouteFoundException e){
+            job.status = NO_ROUTE;
+            if(this.routes != null)
+                this.routes.put(job.maze, this.solver, null);
+        }
+        catch(RuntimeException e){
+            job.status = ERROR;
+            job.error = describe(e);
+        }
+        job.expanded = s.getNodesExpanded();
+        job.solveNanos = System.nanoTime() - start;
+        // the maze is not needed for the JSON line
+        job.maze = null;
+        return job;
+    }
+
+    /** Looks the route of a job up in the route cache
+     * @param job: the job, holding its maze
+     * @return Whether the route was cached, in which case the job
+     * has its outcome
+     */
+    private boolean lookUp(Job job){
+        try{
+            List<Tile> route = this.routes.get(job.maze, this.solver);
+            if(route == null)
+                return false;
+            job.routeLength = route.size();
+            job.status = FOUND;
+        }
+        catch(NoRouteFoundException e){
+            job.status = NO_ROUTE;
+        }
+        job.cached = true;
+        return true;
+    }
+
+    /** Describes a failure for the JSON line
+     * @param e: the failure
+     * @return Its class and message
+     */
+    private static String describe(Throwable e){
+        if(e.getCause() != null && e.getClass().getName().startsWith("java.util.concurrent"))
+            e = e.getCause();
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /** One file on its way through the stages */
+    private static final class Job {
+
+        private final Path file;
+        private Maze maze = null;
+        private String status = null;
+        private String error = null;
+        private int width = 0;
+        private int height = 0;
+        private long cells = 0;
+        private int routeLength = 0;
+        private int expanded = 0;
+        private long parseNanos = 0;
+        private long solveNanos = 0;
+        private boolean cached = false;
+
+        /** The constructor for a parsed maze
+         * @param fileIn: the maze file
+         * @param mazeIn: the parsed maze, or null
+         */
+        private Job(Path fileIn, Maze mazeIn){
+            this.file = fileIn;
+            this.maze = mazeIn;
+            if(mazeIn != null){
+                this.width = mazeIn.getWidth();
+                this.height = mazeIn.getHeight();
+                this.cells = mazeIn.getCellCount();
+            }
+        }
+
+        /** Creates a job for a file that failed
+         * @param file: the maze file
+         * @param status: INVALID or ERROR
+         * @param e: the failure
+         * @return The job
+         */
+        private static Job failed(Path file, String status, Throwable e){
+            Job job = new Job(file, null);
+            job.status = status;
+            job.error = describe(e);
+            return job;
+        }
+
+        /** Method for parsing the job to its JSON line
+         * @param solver: the kind of solver used
+         * @return The line, without its line break
+         */
+        private String toJson(SolverType solver){
+            Json json = new Json().add("file", this.file.toString())
+                .add("status", this.status).add("solver", solver.getName());
+            if(this.cells > 0){
+                json.add("width", this.width).add("height", this.height)
+                    .add("route_length", this.routeLength)
+                    .add("expanded", this.expanded)
+                    .add("parse_ms", this.parseNanos / 1e6)
+                    .add("solve_ms", this.solveNanos / 1e6);
+                if(this.cached)
+                    json.addRaw("cached", "true");
+            }
+            return json.add("error", this.error).toString();
+        }
+    }
+}
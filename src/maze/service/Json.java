@@ -0,0 +1,101 @@
+package maze.service;
+
+/** Builds the single line JSON objects the services write. Only
+ * strings and numbers are needed, so there is no library for it.
+ */
+final class Json {
+
+    /** The text built so far */
+    private final StringBuilder text = new StringBuilder("{");
+
+    /** Adds a string field
+     * @param name: the field name
+     * @param value: the value, or null for JSON null
+     * @return This object
+     */
+    Json add(String name, String value){
+        this.name(name);
+        if(value == null){
+            this.text.append("null");
+            return this;
+        }
+
+        this.text.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            switch(c){
+                case '"':
+                    this.text.append("\\\"");
+                    break;
+                case '\\':
+                    this.text.append("\\\\");
+                    break;
+                case '\n':
+                    this.text.append("\\n");
+                    break;
+                case '\r':
+                    this.text.append("\\r");
+                    break;
+                case '\t':
+                    this.text.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20)
+                        this.text.append(String.format("\\u%04x", (int)c));
+                    else
+                        this.text.append(c);
+            }
+        }
+        this.text.append('"');
+        return this;
+    }
+
+    /** Adds a whole number field
+     * @param name: the field name
+     * @param value: the value
+     * @return This object
+     */
+    Json add(String name, long value){
+        this.name(name);
+        this.text.append(value);
+        return this;
+    }
+
+    /** Adds a decimal field, rounded to three places
+     * @param name: the field name
+     * @param value: the value
+     * @return This object
+     */
+    Json add(String name, double value){
+        this.name(name);
+        this.text.append(Math.round(value * 1000) / 1000.0);
+        return this;
+    }
+
+    /** Adds a field whose value is already JSON
+     * @param name: the field name
+     * @param json: the value as JSON text
+     * @return This object
+     */
+    Json addRaw(String name, String json){
+        this.name(name);
+        this.text.append(json);
+        return this;
+    }
+
+    /** Writes a field name and the comma before it
+     * @param name: the field name
+     */
+    private void name(String name){
+        if(this.text.length() > 1)
+            this.text.append(',');
+        this.text.append('"').append(name).append("\":");
+    }
+
+    /** Closes the object
+     * @return The JSON text, on one line
+     */
+    public String toString(){
+        return this.text + "}";
+    }
+}
@@ -0,0 +1,72 @@
+package maze.service;
+
+import java.util.Arrays;
+
+/** Counts the requests of maze.service.SolveServer and keeps the
+ * latencies of the most recent ones for percentiles
+ * @see maze.service.SolveServer
+ */
+class LatencyStats {
+
+    /** The number of recent latencies kept */
+    private static final int WINDOW = 4096;
+
+    /** The most recent latencies in nanoseconds, as a ring */
+    private final long[] recent = new long[WINDOW];
+
+    /** The number of requests answered, by kind */
+    private long served = 0;
+    private long rejected = 0;
+    private long failed = 0;
+
+    /** The total and the largest latency of the served requests */
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /** Records a served request
+     * @param nanos: its latency, from receipt to response
+     */
+    synchronized void served(long nanos){
+        this.recent[(int)(this.served % WINDOW)] = nanos;
+        this.served++;
+        this.totalNanos += nanos;
+        this.maxNanos = Math.max(this.maxNanos, nanos);
+    }
+
+    /** Records a request turned away because the queue was full */
+    synchronized void rejected(){
+        this.rejected++;
+    }
+
+    /** Records a request that could not be handled */
+    synchronized void failed(){
+        this.failed++;
+    }
+
+    /** Method for parsing the statistics to a JSON object, with
+     * the percentiles of the recent latencies
+     */
+    public synchronized String toString(){
+        int n = (int)Math.min(this.served, WINDOW);
+        long[] sorted = Arrays.copyOf(this.recent, n);
+        Arrays.sort(sorted);
+
+        return new Json().add("served", this.served)
+            .add("rejected", this.rejected).add("failed", this.failed)
+            .add("mean_ms", this.served == 0? 0 : this.totalNanos / 1e6 / this.served)
+            .add("p50_ms", percentile(sorted, 0.5) / 1e6)
+            .add("p99_ms", percentile(sorted, 0.99) / 1e6)
+            .add("max_ms", this.maxNanos / 1e6).toString();
+    }
+
+    /** Picks a percentile of sorted values
+     * @param sorted: the values in ascending order
+     * @param p: the fraction below the percentile
+     * @return The value, or 0 if there are none
+     */
+    private static long percentile(long[] sorted, double p){
+        if(sorted.length == 0)
+            return 0;
+        return sorted[(int)Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+}
@@ -0,0 +1,300 @@
+package maze.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import maze.InvalidMazeException;
+import maze.Maze;
+
+/** A cache of parsed mazes, so that solving the same file again
+ * does not parse it again. A maze cannot change once it is loaded,
+ * so one instance is handed to every caller and any number of
+ * solvers can work on it at once.
+ *
+ * Entries are keyed by the absolute path of the file and checked
+ * against its modification time and size on every lookup; a file
+ * that has changed is parsed again and its old entry is reported to
+ * the invalidation listeners. Each entry is weighed by the memory
+ * its maze holds, which grows once Maze#areConnected has labelled
+ * its components, so entries are weighed again before anything is
+ * evicted. The least recently used entries are evicted
+ * once the total is over the memory budget. Concurrent lookups of a
+ * file that is not cached yet share one parse.
+ * @see maze.Maze
+ */
+public class MazeCache {
+
+    /** The weight of an entry besides its maze, in bytes */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    /** The most bytes of mazes kept */
+    private final long budget;
+
+    /** The cached mazes, least recently used first */
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The parses under way, by path */
+    private final Map<Path, CompletableFuture<Maze>> loading = new HashMap<>();
+
+    /** Called with the path and the old maze when an entry is
+     * dropped because its file changed or on request
+     */
+    private final List<BiConsumer<Path, Maze>> listeners = new CopyOnWriteArrayList<>();
+
+    /** The total weight of the cached mazes */
+    private long weight = 0;
+
+    /** The counters */
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /** The constructor
+     * @param budgetBytes: the most bytes of mazes to keep; a maze
+     * larger than this is parsed but not kept
+     */
+    public MazeCache(long budgetBytes){
+        this.budget = budgetBytes;
+    }
+
+    /** Gets the maze of a file, parsing it only if it is not cached
+     * or has changed since it was
+     * @param path: the maze file, .txt for the text format and
+     * anything else for the binary one
+     * @return The shared maze
+     * @throws InvalidMazeException If the file is not a valid maze
+     * @throws IOException If the file is unreadable
+     */
+    public Maze get(Path path) throws InvalidMazeException, IOException{
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        FileTime modified = attributes.lastModifiedTime();
+        long size = attributes.size();
+
+        CompletableFuture<Maze> load;
+        Maze stale = null;
+        boolean parse = false;
+        synchronized(this){
+            Entry e = this.entries.get(key);
+            if(e != null && e.modified.equals(modified) && e.size == size){
+                this.hits++;
+                return e.maze;
+            }
+            if(e != null){
+                this.remove(key);
+                this.invalidations++;
+                stale = e.maze;
+            }
+
+            load = this.loading.get(key);
+            if(load == null){
+                load = new CompletableFuture<>();
+                this.loading.put(key, load);
+                this.misses++;
+                parse = true;
+            }
+            else
+                this.hits++;
+        }
+        if(stale != null)
+            this.notifyListeners(key, stale);
+
+        if(!parse)
+            return join(load);
+
+        try{
+            Maze m = key.toString().endsWith(".txt")? 
+                Maze.fromTxt(key.toString()) : Maze.fromBinary(key.toString());
+            synchronized(this){
+                this.loading.remove(key);
+                this.put(key, new Entry(m, modified, size));
+            }
+            load.complete(m);
+            return m;
+        }
+        catch(IOException | RuntimeException | Error e){
+            synchronized(this){
+                this.loading.remove(key);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Drops the entry of a file, if there is one
+     * @param path: the maze file
+     */
+    public void invalidate(Path path){
+        Path key = path.toAbsolutePath().normalize();
+        Entry e;
+        synchronized(this){
+            e = this.remove(key);
+            if(e != null)
+                this.invalidations++;
+        }
+        if(e != null)
+            this.notifyListeners(key, e.maze);
+    }
+
+    /** Drops every entry, without telling the listeners */
+    public synchronized void clear(){
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /** Adds a listener called with the path and the old maze when
+     * an entry is dropped because its file changed or invalidate
+     * was called. Evictions are not reported: the file is the
+     * same, so anything derived from it is still right.
+     * @param listener: the listener
+     */
+    public void addInvalidationListener(BiConsumer<Path, Maze> listener){
+        this.listeners.add(listener);
+    }
+
+    /** Getter for the number of lookups answered without parsing */
+    public synchronized long getHits(){
+        return this.hits;
+    }
+
+    /** Getter for the number of lookups that parsed the file */
+    public synchronized long getMisses(){
+        return this.misses;
+    }
+
+    /** Getter for the number of entries evicted for room */
+    public synchronized long getEvictions(){
+        return this.evictions;
+    }
+
+    /** Getter for the number of entries dropped because their file
+     * changed or on request
+     */
+    public synchronized long getInvalidations(){
+        return this.invalidations;
+    }
+
+    /** Getter for the number of cached mazes */
+    public synchronized int size(){
+        return this.entries.size();
+    }
+
+    /** Getter for the total weight of the cached mazes in bytes */
+    public synchronized long getWeight(){
+        this.reweigh();
+        return this.weight;
+    }
+
+    /** Method for parsing the counters to a JSON object */
+    public synchronized String toString(){
+        this.reweigh();
+        return new Json().add("entries", this.entries.size())
+            .add("bytes", this.weight).add("budget", this.budget)
+            .add("hits", this.hits).add("misses", this.misses)
+            .add("evictions", this.evictions)
+            .add("invalidations", this.invalidations).toString();
+    }
+
+    /** Adds an entry and evicts the least recently used ones until
+     * the cache is within budget. Called holding the lock.
+     * @param key: the path of the file
+     * @param e: the new entry
+     */
+    private void put(Path key, Entry e){
+        Entry old = this.entries.put(key, e);
+        if(old != null)
+            this.weight -= old.weight;
+        this.weight += e.weight;
+        this.reweigh();
+
+        Iterator<Entry> eldest = this.entries.values().iterator();
+        while(this.weight > this.budget && eldest.hasNext()){
+            this.weight -= eldest.next().weight;
+            eldest.remove();
+            this.evictions++;
+        }
+    }
+
+    /** Weighs every entry again, for the mazes solved since they
+     * were last weighed. Called holding the lock.
+     */
+    private void reweigh(){
+        for(Entry e : this.entries.values()){
+            long now = e.maze.getRetainedBytes() + ENTRY_OVERHEAD;
+            this.weight += now - e.weight;
+            e.weight = now;
+        }
+    }
+
+    /** Removes an entry. Called holding the lock.
+     * @param key: the path of the file
+     * @return The entry, or null if there was none
+     */
+    private Entry remove(Path key){
+        Entry e = this.entries.remove(key);
+        if(e != null)
+            this.weight -= e.weight;
+        return e;
+    }
+
+    /** Tells the listeners that an entry was dropped
+     * @param key: the path of the file
+     * @param old: the maze of the entry
+     */
+    private void notifyListeners(Path key, Maze old){
+        for(BiConsumer<Path, Maze> listener : this.listeners)
+            listener.accept(key, old);
+    }
+
+    /** Waits for a parse started by another caller
+     * @param load: the parse
+     * @return Its maze
+     * @throws IOException If it failed to read the file
+     */
+    private static Maze join(CompletableFuture<Maze> load) throws IOException{
+        try{
+            return load.join();
+        }
+        catch(CompletionException e){
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw e;
+        }
+    }
+
+    /** A cached maze and the state of its file when it was parsed */
+    private static final class Entry {
+
+        private final Maze maze;
+        private final FileTime modified;
+        private final long size;
+        private long weight;
+
+        /** The constructor
+         * @param mazeIn: the parsed maze
+         * @param modifiedIn: the modification time of the file
+         * @param sizeIn: the size of the file
+         */
+        private Entry(Maze mazeIn, FileTime modifiedIn, long sizeIn){
+            this.maze = mazeIn;
+            this.modified = modifiedIn;
+            this.size = sizeIn;
+            this.weight = mazeIn.getRetainedBytes() + ENTRY_OVERHEAD;
+        }
+    }
+}
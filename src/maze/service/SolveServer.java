@@ -0,0 +1,438 @@
+package maze.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import maze.InvalidMazeException;
+import maze.Maze;
+import maze.Tile;
+import maze.routing.MazeSolver;
+import maze.routing.NoRouteFoundException;
+import maze.routing.SolverType;
+
+/** A small HTTP server that solves mazes sent to it, built on the
+ * JDK's com.sun.net.httpserver.
+ *
+ *   POST /solve?solver=astar   body: a maze in the text format
+ *   GET  /stats                request counts and latencies
+ *
+ * A solve answers with a JSON object: status (found, no_route or
+ * invalid), solver, size, route length, nodes expanded, the route
+ * as [x, y] coordinates, and the time the request spent queued,
+ * parsing and solving. The same times are sent in a Server-Timing
+ * header.
+ *
+ * A request is admitted only while fewer than the solving threads
+ * plus the queue capacity are being answered; any other is answered
+ * 503 with Retry-After straight away instead of piling up. The
+ * handler only reads an admitted request and hands it to a fixed
+ * pool of solving threads, which sends the response and closes the
+ * exchange, so no handler thread waits for a solve.
+ *
+ * Exchanges are handled on virtual threads when the JVM has them.
+ * Before Java 21 they are handled by HANDLER_THREADS platform
+ * threads behind a queue of HANDLER_QUEUE exchanges. An exchange
+ * that finds that queue full is run on the server's dispatcher
+ * thread instead, where it is only answered 503, so nothing waits
+ * without limit on either kind of JVM.
+ * @see maze.routing.SolverType
+ */
+public class SolveServer {
+
+    /** The number of handler threads when there are no virtual
+     * threads
+     */
+    static final int HANDLER_THREADS = 16;
+
+    /** The number of exchanges that may wait for a handler thread
+     * when there are no virtual threads
+     */
+    static final int HANDLER_QUEUE = 1024;
+
+    /** Set while an exchange the handler pool had no room for runs
+     * on the dispatcher thread
+     */
+    private static final ThreadLocal<Boolean> OVERFLOW = new ThreadLocal<>();
+
+    /** The largest maze body accepted, in bytes */
+    private static final int MAX_BODY = 64 << 20;
+
+    /** The underlying server */
+    private final HttpServer server;
+
+    /** The threads that handle connections */
+    private final ExecutorService handlers;
+
+    /** The threads that parse and solve, behind a bounded queue */
+    private final ThreadPoolExecutor solvers;
+
+    /** The requests that may be answered at once, solving or
+     * queued for a solving thread
+     */
+    private final Semaphore admitted;
+
+    /** The request statistics */
+    private final LatencyStats stats = new LatencyStats();
+
+    /** The constructor binds the server but does not start it
+     * @param address: the address to listen on; port 0 picks a
+     * free port
+     * @param threads: the number of mazes solved at once
+     * @param queueCapacity: the number of requests that may wait
+     * for a solving thread before new ones are turned away
+     * @throws IOException If the address cannot be bound
+     */
+    public SolveServer(InetSocketAddress address, int threads, int queueCapacity) 
+        throws IOException{
+        int capacity = Math.max(1, queueCapacity);
+        this.admitted = new Semaphore(threads + capacity);
+        this.solvers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, 
+            new ArrayBlockingQueue<>(capacity), new ThreadPoolExecutor.AbortPolicy());
+        this.handlers = handlerPool();
+
+        this.server = HttpServer.create(address, 1024);
+        this.server.createContext("/solve", this::solve);
+        this.server.createContext("/stats", this::stats);
+        this.server.setExecutor(this.handlers);
+    }
+
+    /** Creates the executor of the exchanges: a virtual thread per
+     * exchange when the JVM has them, otherwise a bounded pool
+     * @return The new executor
+     */
+    private static ExecutorService handlerPool(){
+        if(ThreadPools.hasVirtualThreads())
+            return ThreadPools.create(HANDLER_THREADS, true);
+        return new ThreadPoolExecutor(HANDLER_THREADS, HANDLER_THREADS, 0, TimeUnit.SECONDS, 
+            new ArrayBlockingQueue<>(HANDLER_QUEUE), SolveServer::overflow);
+    }
+
+    /** Runs an exchange the handler pool had no room for on the
+     * calling thread, the dispatcher of the server, marked so that
+     * it is only answered 503
+     * @param exchange: the task of the exchange
+     * @param pool: the handler pool
+     */
+    private static void overflow(Runnable exchange, ThreadPoolExecutor pool){
+        OVERFLOW.set(Boolean.TRUE);
+        try{
+            exchange.run();
+        }
+        finally{
+            OVERFLOW.remove();
+        }
+    }
+
+    /** Starts answering requests */
+    public void start(){
+        this.server.start();
+    }
+
+    /** Stops the server
+     * @param delaySeconds: the longest time to wait for requests
+     * being answered
+     */
+    public void stop(int delaySeconds){
+        this.server.stop(delaySeconds);
+        this.solvers.shutdown();
+        this.handlers.shutdown();
+    }
+
+    /** Getter for the port the server listens on */
+    public int getPort(){
+        return this.server.getAddress().getPort();
+    }
+
+    /** Getter for the request statistics, as a JSON object */
+    public String getStats(){
+        return this.stats.toString();
+    }
+
+    /** Handles /solve: checks and reads the request and hands it
+     * to a solving thread, which answers it
+     * @param exchange: the request and its response
+     * @throws IOException If the connection fails
+     */
+    private void solve(HttpExchange exchange) throws IOException{
+        long received = System.nanoTime();
+        // admission does not depend on the handler threads, so a
+        // full server sheds load on any JVM
+        if(OVERFLOW.get() != null || !this.admitted.tryAcquire()){
+            try{
+                this.busy(exchange);
+            }
+            finally{
+                exchange.close();
+            }
+            return;
+        }
+
+        boolean handedOver = false;
+        try{
+            if(!exchange.getRequestMethod().equals("POST")){
+                this.send(exchange, 405, error("Use POST with a maze as the body."), null);
+                return;
+            }
+
+            SolverType type;
+            try{
+                type = SolverType.fromName(query(exchange.getRequestURI(), "solver", "bfs"));
+            }
+            catch(IllegalArgumentException e){
+                this.send(exchange, 400, error(e.getMessage()), null);
+                return;
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if(body == null){
+                this.send(exchange, 413, error("The maze is too large."), null);
+                return;
+            }
+
+            try{
+                this.solvers.execute(() -> this.answer(exchange, body, type, received));
+                handedOver = true;
+            }
+            catch(RejectedExecutionException e){
+                // the server is stopping
+                this.busy(exchange);
+            }
+        }
+        catch(RuntimeException e){
+            this.fail(exchange, e);
+        }
+        finally{
+            if(!handedOver){
+                this.admitted.release();
+                exchange.close();
+            }
+        }
+    }
+
+    /** Solves an admitted request and answers it, on a solving
+     * thread
+     * @param exchange: the request and its response
+     * @param body: the maze text
+     * @param type: the kind of solver
+     * @param received: when the request arrived
+     */
+    private void answer(HttpExchange exchange, byte[] body, SolverType type, long received){
+        try{
+            Reply r = work(body, type, received);
+            this.send(exchange, r.code, r.json, r.timing);
+            this.stats.served(System.nanoTime() - received);
+        }
+        catch(IOException e){
+            // the client has gone
+            this.stats.failed();
+        }
+        catch(RuntimeException | Error e){
+            this.fail(exchange, e);
+        }
+        finally{
+            this.admitted.release();
+            exchange.close();
+        }
+    }
+
+    /** Answers 500 for a request that failed, unless its response
+     * has been started already, in which case the exchange can
+     * only be closed
+     * @param exchange: the request and its response
+     * @param e: the failure
+     */
+    private void fail(HttpExchange exchange, Throwable e){
+        this.stats.failed();
+        // the response code is -1 until the headers have been sent
+        if(exchange.getResponseCode() >= 0)
+            return;
+        try{
+            this.send(exchange, 500, error(e.toString()), null);
+        }
+        catch(IOException ignored){
+            // the client has gone as well
+        }
+    }
+
+    /** Turns a request away because the server is full
+     * @param exchange: the request and its response
+     * @throws IOException If the connection fails
+     */
+    private void busy(HttpExchange exchange) throws IOException{
+        this.stats.rejected();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        this.send(exchange, 503, error("The server is busy."), null);
+    }
+
+    /** Handles /stats
+     * @param exchange: the request and its response
+     * @throws IOException If the connection fails
+     */
+    private void stats(HttpExchange exchange) throws IOException{
+        try{
+            this.send(exchange, 200, this.stats.toString(), null);
+        }
+        finally{
+            exchange.close();
+        }
+    }
+
+    /** Parses and solves one maze, on a solving thread
+     * @param body: the maze text
+     * @param type: the kind of solver
+     * @param received: when the request arrived
+     * @return The response
+     */
+    private static Reply work(byte[] body, SolverType type, long received){
+        long start = System.nanoTime();
+        Maze m;
+        try{
+            m = Maze.fromTxt(ByteBuffer.wrap(body));
+        }
+        catch(InvalidMazeException e){
+            Json json = new Json().add("status", BatchSolver.INVALID)
+                .add("error", e.getMessage());
+            return new Reply(400, json.toString(), null);
+        }
+        long parsed = System.nanoTime();
+
+        MazeSolver s = type.create(m);
+        List<Tile> route = null;
+        try{
+            route = s.findRoute();
+        }
+        catch(NoRouteFoundException e){
+            // answered as no_route below
+        }
+        long solved = System.nanoTime();
+
+        Json json = new Json()
+            .add("status", route != null? BatchSolver.FOUND : BatchSolver.NO_ROUTE)
+            .add("solver", type.getName())
+            .add("width", m.getWidth()).add("height", m.getHeight())
+            .add("route_length", route != null? route.size() : 0)
+            .add("expanded", s.getNodesExpanded());
+        if(route != null)
+            json.addRaw("route", coordinates(m, route));
+        json.add("queue_ms", (start - received) / 1e6)
+            .add("parse_ms", (parsed - start) / 1e6)
+            .add("solve_ms", (solved - parsed) / 1e6);
+
+        String timing = String.format(Locale.ROOT, "queue;dur=%.3f, parse;dur=%.3f, solve;dur=%.3f",
+            (start - received) / 1e6, (parsed - start) / 1e6, (solved - parsed) / 1e6);
+        return new Reply(200, json.toString(), timing);
+    }
+
+    /** Writes a route as a JSON array of [x, y] pairs
+     * @param m: the maze of the route
+     * @param route: the tiles of the route
+     * @return The JSON text
+     */
+    private static String coordinates(Maze m, List<Tile> route){
+        StringBuilder json = new StringBuilder(route.size() * 10).append('[');
+        for(Tile t : route){
+            Maze.Coordinate c = m.getTileLocation(t);
+            if(json.length() > 1)
+                json.append(',');
+            json.append('[').append(c.getX()).append(',').append(c.getY()).append(']');
+        }
+        return json.append(']').toString();
+    }
+
+    /** Sends a JSON response
+     * @param exchange: the request and its response
+     * @param code: the status code
+     * @param json: the body
+     * @param timing: the Server-Timing header, or null
+     * @throws IOException If the connection fails
+     */
+    private void send(HttpExchange exchange, int code, String json, String timing) 
+        throws IOException{
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if(timing != null)
+            exchange.getResponseHeaders().set("Server-Timing", timing);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(bytes);
+        }
+    }
+
+    /** Reads a request body
+     * @param in: the body stream
+     * @return The bytes, or null if there are more than MAX_BODY
+     * @throws IOException If the connection fails
+     */
+    private static byte[] readBody(InputStream in) throws IOException{
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for(int n; (n = in.read(buffer)) > 0; ){
+            if(body.size() + n > MAX_BODY)
+                return null;
+            body.write(buffer, 0, n);
+        }
+        return body.toByteArray();
+    }
+
+    /** Reads a parameter from the query string
+     * @param uri: the request URI
+     * @param name: the parameter
+     * @param fallback: the value if it is missing
+     * @return The value
+     */
+    private static String query(URI uri, String name, String fallback){
+        String query = uri.getQuery();
+        if(query == null)
+            return fallback;
+        for(String pair : query.split("&")){
+            int eq = pair.indexOf('=');
+            if(eq > 0 && pair.substring(0, eq).equals(name))
+                return pair.substring(eq + 1);
+        }
+        return fallback;
+    }
+
+    /** Builds an error body
+     * @param message: what went wrong
+     * @return The JSON text
+     */
+    private static String error(String message){
+        return new Json().add("status", BatchSolver.ERROR).add("error", message).toString();
+    }
+
+    /** A response worked out on a solving thread */
+    private static final class Reply {
+
+        private final int code;
+        private final String json;
+        private final String timing;
+
+        /** The constructor
+         * @param codeIn: the status code
+         * @param jsonIn: the body
+         * @param timingIn: the Server-Timing header, or null
+         */
+        private Reply(int codeIn, String jsonIn, String timingIn){
+            this.code = codeIn;
+            this.json = jsonIn;
+            this.timing = timingIn;
+        }
+    }
+}
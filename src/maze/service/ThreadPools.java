@@ -0,0 +1,53 @@
+package maze.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Creates the executors of the services. Virtual threads are used
+ * when asked for and the running JVM has them (Java 21 and later);
+ * they are looked up reflectively, so the code still builds and
+ * runs on Java 11 with a fixed pool instead.
+ */
+final class ThreadPools {
+
+    /** The class only has static methods */
+    private ThreadPools(){}
+
+    /** Checks whether the running JVM has virtual threads */
+    static boolean hasVirtualThreads(){
+        return virtualFactory() != null;
+    }
+
+    /** Creates an executor
+     * @param threads: the number of platform threads, used when
+     * virtual threads are not
+     * @param virtual: whether to start a virtual thread per task,
+     * if the JVM has them
+     * @return The new executor
+     */
+    static ExecutorService create(int threads, boolean virtual){
+        Method factory = virtual? virtualFactory() : null;
+        if(factory != null){
+            try{
+                return (ExecutorService)factory.invoke(null);
+            }
+            catch(ReflectiveOperationException e){
+                // fall through to the fixed pool
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /** Looks up Executors.newVirtualThreadPerTaskExecutor
+     * @return The method, or null before Java 21
+     */
+    private static Method virtualFactory(){
+        try{
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch(NoSuchMethodException e){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package maze.visualisation;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+
+import maze.Maze;
+import maze.routing.RouteFinder;
+
+/** Draws a maze and the state of its RouteFinder onto a single
+ * Canvas the size of the display, for mazes too large for one
+ * ImageView per tile. The canvas is a viewport onto the maze:
+ * dragging pans it and scrolling zooms it around the pointer.
+ * Only the cells inside the viewport are drawn, straight from the
+ * maze grid and the search state, and neighbouring cells of the
+ * same colour along a row are filled as one rectangle. A step only
+ * fills the cells it changed, given to drawCell by the VisualMaze.
+ * The search is read while holding its lock, so it may be stepped
+ * by a maze.visualisation.SolveWorker meanwhile.
+ * @see maze.visualisation.VisualMaze
+ * @see maze.visualisation.TilePalette
+ */
+class CanvasMaze {
+
+    /** The smallest size of a cell, in pixels */
+    static final double MIN_SCALE = 1;
+
+    /** The largest size of a cell, in pixels */
+    static final double MAX_SCALE = 64;
+
+    /** The size of a cell when a maze is first shown, unless the
+     * whole maze fits with larger cells
+     */
+    static final double START_SCALE = 4;
+
+    /** The zoom factor of one scroll notch */
+    private static final double ZOOM_STEP = 1.25;
+
+    /** The colour around the maze */
+    private static final Color BACKGROUND = Color.rgb(80, 76, 76);
+
+    /** The maze being drawn */
+    private final Maze maze;
+
+    /** The search being drawn */
+    private final RouteFinder rf;
+
+    /** The viewport */
+    private final Canvas canvas;
+
+    /** The colour of every state character */
+    private final Color[] colours = new Color[128];
+
+    /** The size of a cell in pixels */
+    private double scale = 0;
+
+    /** The position of the top left corner of the viewport, in
+     * pixels from the top left corner of the maze
+     */
+    private double originX = 0;
+    private double originY = 0;
+
+    /** Where the pointer was when the last drag event came */
+    private double dragX = 0;
+    private double dragY = 0;
+
+    /** The constructor creates the viewport
+     * @param rfIn: the search to draw
+     * @param width: the width of the viewport in pixels
+     * @param height: the height of the viewport in pixels
+     */
+    CanvasMaze(RouteFinder rfIn, double width, double height){
+        this.rf = rfIn;
+        this.maze = rfIn.getMaze();
+        this.canvas = new Canvas(width, height);
+        for(char c = 0; c < this.colours.length; c++){
+            int argb = TilePalette.argb(c);
+            this.colours[c] = Color.rgb(argb >> 16 & 255, argb >> 8 & 255, argb & 255);
+        }
+
+        // fit the maze if it fits with cells of START_SCALE or more,
+        // otherwise start at the entrance
+        double fit = Math.min(width / this.maze.getWidth(), height / this.maze.getHeight());
+        this.scale = Math.min(MAX_SCALE, Math.max(fit, START_SCALE));
+        if(fit < START_SCALE){
+            int entrance = this.maze.getEntranceIndex();
+            this.centreOn(entrance % this.maze.getWidth(), entrance / this.maze.getWidth());
+        }
+
+        this.canvas.setOnMousePressed(this::pressed);
+        this.canvas.setOnMouseDragged(this::dragged);
+        this.canvas.setOnScroll(this::scrolled);
+        this.draw();
+    }
+
+    /** Getter for the viewport */
+    Canvas getCanvas(){
+        return this.canvas;
+    }
+
+    /** Moves the viewport so a cell is in its centre
+     * @param col: the column of the cell
+     * @param row: the row of the cell, counted from the top
+     */
+    void centreOn(int col, int row){
+        this.originX = (col + 0.5) * this.scale - this.canvas.getWidth() / 2;
+        this.originY = (row + 0.5) * this.scale - this.canvas.getHeight() / 2;
+    }
+
+    /** Draws every cell inside the viewport */
+    void draw(){
+        GraphicsContext gc = this.canvas.getGraphicsContext2D();
+        double w = this.canvas.getWidth();
+        double h = this.canvas.getHeight();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, w, h);
+
+        // the range of cells that are at least partly visible
+        int width = this.maze.getWidth();
+        int firstCol = Math.max(0, (int)Math.floor(this.originX / this.scale));
+        int lastCol = Math.min(width, (int)Math.ceil((this.originX + w) / this.scale));
+        int firstRow = Math.max(0, (int)Math.floor(this.originY / this.scale));
+        int lastRow = Math.min(this.maze.getHeight(),
+            (int)Math.ceil((this.originY + h) / this.scale));
+
+        synchronized(this.rf){
+            for(int row = firstRow; row < lastRow; row++){
+                // a run of cells of one state is filled at once
+                int runStart = firstCol;
+                char runState = 0;
+                for(int col = firstCol; col < lastCol; col++){
+                    char state = TilePalette.stateOf(this.rf, row * width + col);
+                    if(col > firstCol && state != runState){
+                        this.fill(gc, row, runStart, col, runState);
+                        runStart = col;
+                    }
+                    runState = state;
+                }
+                if(lastCol > firstCol)
+                    this.fill(gc, row, runStart, lastCol, runState);
+            }
+        }
+    }
+
+    /** Getter for the number of cells that fit in the viewport at
+     * the current zoom, roughly
+     */
+    int getVisibleCells(){
+        return (int)Math.min(Integer.MAX_VALUE, 
+            (this.canvas.getWidth() / this.scale + 1) * (this.canvas.getHeight() / this.scale + 1));
+    }
+
+    /** Draws one cell, if it is inside the viewport. The caller
+     * holds the lock of the search.
+     * @param index: the index of the cell, or -1 for none
+     */
+    void drawCell(int index){
+        if(index < 0)
+            return;
+        int width = this.maze.getWidth();
+        int row = index / width;
+        int col = index % width;
+        double x = col * this.scale - this.originX;
+        double y = row * this.scale - this.originY;
+        if(x + this.scale <= 0 || y + this.scale <= 0
+            || x >= this.canvas.getWidth() || y >= this.canvas.getHeight())
+            return;
+        this.fill(this.canvas.getGraphicsContext2D(), row, col, col + 1,
+            TilePalette.stateOf(this.rf, index));
+    }
+
+    /** Fills a run of cells along a row
+     * @param gc: the graphics context of the viewport
+     * @param row: the row, counted from the top
+     * @param from: the first column of the run
+     * @param to: the column after the last one
+     * @param state: the state character of the cells
+     */
+    private void fill(GraphicsContext gc, int row, int from, int to, char state){
+        gc.setFill(this.colours[state]);
+        // whole pixels, so neighbouring runs leave no seams
+        double x0 = Math.floor(from * this.scale - this.originX);
+        double x1 = Math.floor(to * this.scale - this.originX);
+        double y0 = Math.floor(row * this.scale - this.originY);
+        double y1 = Math.floor((row + 1) * this.scale - this.originY);
+        gc.fillRect(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /** Starts a drag
+     * @param e: the mouse event
+     */
+    private void pressed(MouseEvent e){
+        this.dragX = e.getX();
+        this.dragY = e.getY();
+    }
+
+    /** Pans the viewport with the pointer
+     * @param e: the mouse event
+     */
+    private void dragged(MouseEvent e){
+        this.originX -= e.getX() - this.dragX;
+        this.originY -= e.getY() - this.dragY;
+        this.dragX = e.getX();
+        this.dragY = e.getY();
+        this.draw();
+    }
+
+    /** Zooms in or out, keeping the point under the pointer still
+     * @param e: the scroll event
+     */
+    private void scrolled(ScrollEvent e){
+        if(e.getDeltaY() == 0)
+            return;
+        double factor = e.getDeltaY() > 0? ZOOM_STEP : 1 / ZOOM_STEP;
+        double next = Math.min(MAX_SCALE, Math.max(MIN_SCALE, this.scale * factor));
+        this.originX = (this.originX + e.getX()) * next / this.scale - e.getX();
+        this.originY = (this.originY + e.getY()) * next / this.scale - e.getY();
+        this.scale = next;
+        this.draw();
+        e.consume();
+    }
+}
@@ -0,0 +1,173 @@
+package maze.visualisation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import maze.Maze;
+import maze.routing.RouteFinder;
+
+/** Writes a maze and the state of its RouteFinder as a PNG image,
+ * in the colours of maze.visualisation.TilePalette, without JavaFX
+ * or a display. Every cell is a square of scale by scale pixels in
+ * the same state as in RouteFinder.toString: wall, corridor, exit,
+ * visited, wrong path, and the head.
+ *
+ * The image is an 8 bit palette PNG. Rows are worked out one at a
+ * time and streamed through a Deflater, whose output is written
+ * out as IDAT chunks with their CRC32 as soon as it is ready, so
+ * memory use does not grow with the size of the maze.
+ * @see maze.visualisation.TilePalette
+ */
+public final class MazePng {
+
+    /** The eight bytes every PNG starts with */
+    private static final byte[] SIGNATURE = {
+        (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+    };
+
+    /** The cell states, in the order of the palette */
+    private static final String STATES = "#.x*-ef";
+
+    /** The size of an IDAT chunk */
+    private static final int CHUNK = 1 << 16;
+
+    /** The class only has static methods */
+    private MazePng(){}
+
+    /** Writes the image to a file
+     * @param rf: the search, whose maze is drawn
+     * @param path: the file to write, which is replaced if it exists
+     * @param scale: the width and height of a cell in pixels
+     * @throws IOException If the file cannot be written
+     * @throws IllegalArgumentException If the scale is not positive
+     * or the image would be too large for a PNG
+     */
+    public static void write(RouteFinder rf, Path path, int scale) throws IOException{
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), CHUNK)){
+            write(rf, out, scale);
+        }
+    }
+
+    /** Writes the image to a stream, which is left open
+     * @param rf: the search, whose maze is drawn
+     * @param out: the stream to write to
+     * @param scale: the width and height of a cell in pixels
+     * @throws IOException If the stream fails
+     * @throws IllegalArgumentException If the scale is not positive
+     * or the image would be too large for a PNG
+     */
+    public static void write(RouteFinder rf, OutputStream out, int scale) throws IOException{
+        Maze m = rf.getMaze();
+        long width = (long)m.getWidth() * scale;
+        long height = (long)m.getHeight() * scale;
+        if(scale < 1 || width > Integer.MAX_VALUE - 1 || height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot draw the maze at scale " + scale + ".");
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+
+        // width, height, bit depth 8, colour type 3 (palette),
+        // deflate, adaptive filtering, no interlace
+        byte[] header = new byte[13];
+        putInt(header, 0, (int)width);
+        putInt(header, 4, (int)height);
+        header[8] = 8;
+        header[9] = 3;
+        chunk(data, "IHDR", header, header.length);
+
+        byte[] palette = new byte[STATES.length() * 3];
+        for(int i = 0; i < STATES.length(); i++){
+            int argb = TilePalette.argb(STATES.charAt(i));
+            palette[3 * i] = (byte)(argb >> 16);
+            palette[3 * i + 1] = (byte)(argb >> 8);
+            palette[3 * i + 2] = (byte)argb;
+        }
+        chunk(data, "PLTE", palette, palette.length);
+
+        // every scanline is a filter byte, 0 for none, then one
+        // palette index per pixel
+        byte[] line = new byte[(int)width + 1];
+        byte[] buffer = new byte[CHUNK];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try{
+            for(int row = 0; row < m.getHeight(); row++){
+                int index = row * m.getWidth();
+                int at = 1;
+                for(int col = 0; col < m.getWidth(); col++){
+                    byte state = (byte)STATES.indexOf(TilePalette.stateOf(rf, index++));
+                    for(int i = 0; i < scale; i++)
+                        line[at++] = state;
+                }
+                // a cell is as tall as it is wide
+                for(int i = 0; i < scale; i++){
+                    deflater.setInput(line);
+                    while(!deflater.needsInput())
+                        drain(data, deflater, buffer);
+                }
+            }
+            deflater.finish();
+            while(!deflater.finished())
+                drain(data, deflater, buffer);
+        }
+        finally{
+            deflater.end();
+        }
+
+        chunk(data, "IEND", buffer, 0);
+        data.flush();
+    }
+
+    /** Writes the compressed data the deflater has ready as an
+     * IDAT chunk of at most CHUNK bytes
+     * @param data: the stream to write to
+     * @param deflater: the compressor
+     * @param buffer: the buffer for compressed data
+     * @throws IOException If the stream fails
+     */
+    private static void drain(DataOutputStream data, Deflater deflater, byte[] buffer)
+        throws IOException{
+        int n = deflater.deflate(buffer);
+        if(n > 0)
+            chunk(data, "IDAT", buffer, n);
+    }
+
+    /** Writes one chunk: length, type, data and the CRC32 of the
+     * type and data
+     * @param data: the stream to write to
+     * @param type: the four letter chunk type
+     * @param body: the data of the chunk
+     * @param length: the number of bytes of body to write
+     * @throws IOException If the stream fails
+     */
+    private static void chunk(DataOutputStream data, String type, byte[] body, int length)
+        throws IOException{
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(body, 0, length);
+
+        data.writeInt(length);
+        data.write(name);
+        data.write(body, 0, length);
+        data.writeInt((int)crc.getValue());
+    }
+
+    /** Writes a big endian int into an array
+     * @param b: the array
+     * @param at: the offset of the first byte
+     * @param v: the value
+     */
+    private static void putInt(byte[] b, int at, int v){
+        b[at] = (byte)(v >> 24);
+        b[at + 1] = (byte)(v >> 16);
+        b[at + 2] = (byte)(v >> 8);
+        b[at + 3] = (byte)v;
+    }
+}
@@ -0,0 +1,270 @@
+package maze.visualisation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+import maze.routing.NoRouteFoundException;
+import maze.routing.RouteFinder;
+import maze.routing.RouteListener;
+import maze.routing.SolveResult;
+
+/** Steps the RouteFinder of a VisualMaze on a background thread,
+ * so a long solve can be watched without clicking for every step
+ * and without blocking the JavaFX application thread.
+ *
+ * While it runs, the worker collects the cells every step changes,
+ * once each. At most FRAME_RATE times a second it hands them to the
+ * application thread with Platform.runLater, which redraws them and
+ * calls the frame callback. A frame that has not been drawn yet
+ * takes in the cells of the next steps rather than queueing a new
+ * one, so the solver runs at full speed between frames however slow
+ * the drawing is. The worker steps, and the frame reads, while
+ * holding the lock of the RouteFinder.
+ * @see maze.visualisation.VisualMaze
+ */
+public class SolveWorker {
+
+    /** The most frames drawn per second */
+    public static final int FRAME_RATE = 30;
+
+    /** The most steps taken between two looks at the clock */
+    private static final int BATCH = 4096;
+
+    /** The time between frames, in nanoseconds */
+    private static final long FRAME_NANOS = 1_000_000_000L / FRAME_RATE;
+
+    /** The view being solved */
+    private final VisualMaze view;
+
+    /** The search being stepped */
+    private final RouteFinder rf;
+
+    /** Called on the application thread after every frame */
+    private final Consumer<SolveWorker> onFrame;
+
+    /** The cells changed since the last frame, and a bit per cell
+     * so each is collected once. Guarded by the lock of rf.
+     */
+    private int[] dirty = new int[64];
+    private int dirtyCount = 0;
+    private final BitSet pending = new BitSet();
+
+    /** Whether a frame is waiting for the application thread */
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+
+    /** The thread stepping the search, or null if paused */
+    private volatile Thread thread = null;
+
+    /** Whether the worker should keep stepping */
+    private volatile boolean running = false;
+
+    /** The steps per second, or infinity for full speed */
+    private volatile double speed = Double.POSITIVE_INFINITY;
+
+    /** The number of steps taken so far */
+    private volatile long steps = 0;
+
+    /** How the search ended, or null while it can go on */
+    private volatile SolveResult.Outcome outcome = null;
+
+    /** The constructor
+     * @param viewIn: the view whose RouteFinder is stepped
+     * @param onFrameIn: called on the application thread after
+     * every frame, e.g. to show the progress
+     */
+    public SolveWorker(VisualMaze viewIn, Consumer<SolveWorker> onFrameIn){
+        this.view = viewIn;
+        this.rf = viewIn.getRouteFinder();
+        this.onFrame = onFrameIn;
+        if(this.rf.isFinished())
+            this.outcome = SolveResult.Outcome.FOUND;
+    }
+
+    /** Starts or resumes stepping. Does nothing if the worker is
+     * already running or the search is over.
+     */
+    public synchronized void play(){
+        if(this.running || this.outcome != null)
+            return;
+
+        // the worker collects the changes instead of the view
+        synchronized(this.rf){
+            this.rf.setListener(new Collect());
+        }
+        this.running = true;
+        this.thread = new Thread(this::work, "maze-solver");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Stops stepping after the current batch and waits for it.
+     * The last changes are still drawn.
+     */
+    public synchronized void pause(){
+        this.running = false;
+        if(this.thread != null){
+            Thread old = this.thread;
+            this.thread = null;
+            LockSupport.unpark(old);
+            try{
+                old.join();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Setter for the speed
+     * @param stepsPerSecond: the steps to take per second, or
+     * Double.POSITIVE_INFINITY (or any value of 0 or less) to step
+     * as fast as possible
+     */
+    public void setSpeed(double stepsPerSecond){
+        this.speed = stepsPerSecond <= 0? Double.POSITIVE_INFINITY : stepsPerSecond;
+        // wake the worker, which may be waiting for a slow step
+        Thread t = this.thread;
+        if(t != null)
+            LockSupport.unpark(t);
+    }
+
+    /** Getter for whether the worker is stepping */
+    public boolean isRunning(){
+        return this.running;
+    }
+
+    /** Getter for the number of steps taken by the worker */
+    public long getSteps(){
+        return this.steps;
+    }
+
+    /** Getter for how the search ended
+     * @return FOUND or NO_ROUTE, or null while it can go on
+     */
+    public SolveResult.Outcome getOutcome(){
+        return this.outcome;
+    }
+
+    /** The body of the worker thread */
+    private void work(){
+        long lastFrame = System.nanoTime();
+        long lastStep = lastFrame;
+        double credit = 0;
+        while(this.running){
+            long now = System.nanoTime();
+
+            // at full speed a batch at a time, otherwise the steps
+            // the time since the last batch has earned
+            int batch = BATCH;
+            if(this.speed != Double.POSITIVE_INFINITY){
+                credit = Math.min(credit + (now - lastStep) * this.speed / 1e9,
+                    Math.max(1, this.speed / FRAME_RATE));
+                batch = (int)Math.min(BATCH, credit);
+                credit -= batch;
+            }
+            lastStep = now;
+
+            if(batch > 0)
+                this.stepBatch(batch);
+            if(this.outcome != null)
+                this.running = false;
+
+            if(now - lastFrame >= FRAME_NANOS){
+                lastFrame = now;
+                this.publish(false);
+            }
+            if(batch == 0){
+                // sleep until the next step is due, or the next frame
+                long wait = (long)((1 - credit) / this.speed * 1e9);
+                LockSupport.parkNanos(Math.max(1, Math.min(wait, FRAME_NANOS)));
+            }
+        }
+
+        // the view draws the manual steps again, and gets the rest
+        this.view.listen();
+        this.publish(true);
+    }
+
+    /** Takes some steps while holding the lock of the search
+     * @param batch: the most steps to take
+     */
+    private void stepBatch(int batch){
+        int taken = 0;
+        synchronized(this.rf){
+            try{
+                while(taken < batch){
+                    taken++;
+                    if(this.rf.step()){
+                        this.outcome = SolveResult.Outcome.FOUND;
+                        break;
+                    }
+                }
+            }
+            catch(NoRouteFoundException e){
+                this.outcome = SolveResult.Outcome.NO_ROUTE;
+            }
+        }
+        this.steps += taken;
+    }
+
+    /** Hands the changed cells to the application thread
+     * @param last: whether this is the last frame of a run, which
+     * is sent even if a frame is still waiting
+     */
+    private void publish(boolean last){
+        if(!this.framePending.compareAndSet(false, true) && !last)
+            return;
+        Platform.runLater(this::frame);
+    }
+
+    /** Draws a frame, on the application thread */
+    private void frame(){
+        this.framePending.set(false);
+        int[] cells;
+        int count;
+        synchronized(this.rf){
+            cells = Arrays.copyOf(this.dirty, this.dirtyCount);
+            count = this.dirtyCount;
+            for(int i = 0; i < count; i++)
+                this.pending.clear(cells[i]);
+            this.dirtyCount = 0;
+            this.view.redraw(cells, count);
+        }
+        this.onFrame.accept(this);
+    }
+
+    /** Notes a changed cell for the next frame; called with the
+     * lock of the search held
+     * @param index: the index of the cell, or -1 for none
+     */
+    private void collect(int index){
+        if(index < 0 || this.pending.get(index))
+            return;
+        this.pending.set(index);
+        if(this.dirtyCount == this.dirty.length)
+            this.dirty = Arrays.copyOf(this.dirty, this.dirtyCount * 2);
+        this.dirty[this.dirtyCount++] = index;
+    }
+
+    /** Collects the cells the RouteFinder reports as changed */
+    private class Collect implements RouteListener{
+
+        public void tileVisited(int index){
+            collect(index);
+        }
+
+        public void tileLeft(int index){
+            collect(index);
+        }
+
+        public void headMoved(int from, int to){
+            collect(from);
+            collect(to);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package maze.visualisation;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+
+import maze.Tile;
+
+/** The images of the tiles, each read from resources/images once
+ * per tile size and then shared by every ImageView that shows it.
+ * Images are decoded straight to the tile size, so the views do
+ * not scale them either. Only the JavaFX application thread uses
+ * the cache, so it needs no locking.
+ * @see maze.Tile#charToImage
+ * @see maze.visualisation.VisualMaze
+ */
+final class TileImages {
+
+    /** The decoded images, keyed by character and tile size */
+    private static final Map<String, Image> IMAGES = new HashMap<>();
+
+    /** The class only has static methods */
+    private TileImages(){}
+
+    /** Getter for the image of a tile
+     * @param c: the character representation of the tile, as in
+     * maze.routing.RouteFinder#toString, or 'f' for the head at
+     * the exit
+     * @param width: the width of a tile
+     * @param height: the height of a tile
+     * @return The shared image, decoded on the first call for this
+     * character and size
+     * @throws FileNotFoundException If the application cannot
+     * access resources/images/*.jpg
+     */
+    static Image get(char c, int width, int height) throws FileNotFoundException{
+        String key = c + ":" + width + "x" + height;
+        Image img = IMAGES.get(key);
+        if(img == null){
+            img = load(Tile.charToImage(c), width, height);
+            IMAGES.put(key, img);
+        }
+        return img;
+    }
+
+    /** Reads and decodes an image file
+     * @param path: the path to the file
+     * @param width: the width to decode to
+     * @param height: the height to decode to
+     * @return The image
+     * @throws FileNotFoundException If the file cannot be opened
+     */
+    private static Image load(String path, int width, int height)
+        throws FileNotFoundException{
+        try(InputStream in = new FileInputStream(path)){
+            return new Image(in, width, height, false, true);
+        }
+        catch(FileNotFoundException e){
+            throw e;
+        }
+        catch(IOException e){
+            // the image is decoded before the stream is closed, so
+            // only the close failed; treat the file as unreadable
+            throw new FileNotFoundException(path + ": " + e.getMessage());
+        }
+    }
+}
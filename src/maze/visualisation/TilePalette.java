@@ -0,0 +1,70 @@
+package maze.visualisation;
+
+import maze.Maze;
+import maze.Tile;
+import maze.routing.RouteFinder;
+
+/** Flat colours for the states of a cell, for drawing mazes too
+ * large for one image per tile. The states are the characters of
+ * maze.Tile#charToImage, so a cell looks the same whichever way it
+ * is drawn, and the colours are taken from the tile images. The
+ * class uses no JavaFX, so it also serves headless rendering.
+ * @see maze.visualisation.CanvasMaze
+ */
+final class TilePalette {
+
+    /** The class only has static methods */
+    private TilePalette(){}
+
+    /** Getter for the colour of a cell state
+     * @param c: the character of the state
+     * @return The colour as 0xAARRGGBB
+     */
+    static int argb(char c){
+        switch(c){
+            case '#':
+                return 0xff4e484a;
+            case '.':
+                return 0xffadbc3a;
+            case 'x':
+                return 0xff395761;
+            case '*':
+                return 0xff3d7a8c;
+            case '-':
+                return 0xff8c2b33;
+            case 'e':
+                return 0xfff0f0f0;
+            case 'f':
+                return 0xffe6be3c;
+            default:
+                return 0xffce2b2a;
+        }
+    }
+
+    /** Works out the state of a cell: the head, or the head on the
+     * exit, then the wrong path and visited markers, then the tile
+     * type, the same precedence as the tile images
+     * @param rf: the search
+     * @param index: the index of the cell
+     * @return The character of the state
+     */
+    static char stateOf(RouteFinder rf, int index){
+        Maze m = rf.getMaze();
+        if(index == rf.getHeadIndex())
+            return m.getTypeAt(index) == Tile.Type.EXIT? 'f' : 'e';
+        if(rf.isWrongPath(index))
+            return '-';
+        if(rf.isVisited(index))
+            return '*';
+        switch(m.getTypeAt(index)){
+            case ENTRANCE:
+                return 'e';
+            case EXIT:
+                return 'x';
+            case WALL:
+                return '#';
+            default:
+                return '.';
+        }
+    }
+}
@@ -2,32 +2,50 @@
 
 package maze.visualisation;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
 
 import javafx.scene.Group;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
 import maze.*;
-import maze.Maze.Coordinate;
-import maze.Tile.Type;
 import maze.routing.*;
 
-/** A bridging class between RouteFinder and JavaFX 
+/** A bridging class between RouteFinder and JavaFX. Mazes of up
+ * to CANVAS_THRESHOLD cells whose tiles fit the display at MIN_TILE
+ * pixels or more are shown as one image per tile; the others are
+ * drawn onto a canvas that can be panned and zoomed.
+ * The RouteFinder is stepped and read while holding its lock, so a
+ * maze.visualisation.SolveWorker can run it in the background.
  * @see maze.Maze
  * @see maze.routing.RouteFinder
+ * @see maze.visualisation.CanvasMaze
+ * @see maze.visualisation.SolveWorker
 */
 public class VisualMaze{
 
-    /** A constant that defines the width of the application */
+    /** A constant that defines the width of the application,
+     * and so of the viewport onto large mazes
+     */
     public static int DISPLAY_WIDTH = 600;
 
-    /** A constant that defines the height of the application */
+    /** A constant that defines the height of the application,
+     * and so of the viewport onto large mazes
+     */
     public static int DISPLAY_HEIGHT = 400;
 
+    /** The number of cells above which a maze is drawn onto a
+     * canvas instead of with one image per tile
+     */
+    public static int CANVAS_THRESHOLD = 200 * 200;
+
+    /** The smallest width or height of a tile image; a maze whose
+     * tiles would have to be smaller to fit the display is drawn
+     * onto a canvas
+     */
+    public static int MIN_TILE = 5;
+
     /** The Maze to be displayed */
     private Maze maze = null;
 
@@ -42,21 +60,31 @@ public class VisualMaze{
     /** A group that holds all tileImages to be kept together */
     private Group tiles = null;
 
+    /** The canvas the maze is drawn on, or null if it is shown
+     * as tile images
+     */
+    private CanvasMaze canvas = null;
+
+    /** The width of a tile image */
+    private int tileWidth = 0;
+
+    /** The height of a tile image */
+    private int tileHeight = 0;
+
     /** The maze constructor for VisualMaze
      * 
      * @param m: the Maze object to be visualised
      * @see maze.Maze
      */
     public VisualMaze(Maze m){
-        this.maze = m;
-        this.rf = new RouteFinder(m);
-        try { this.createTiles(); }
-        catch (FileNotFoundException e){
-            System.out.println("Fatal: Cannot retrieve images.");
-        }
+        this(new RouteFinder(m));
     }
 
-    /** The RouteFinder constructor for VisualMaze
+    /** The RouteFinder constructor for VisualMaze. The tiles are
+     * created once; from then on the RouteFinder tells the
+     * VisualMaze which cells each step changes and only their
+     * images are swapped, or only their cells are drawn on the
+     * canvas.
      * 
      * @param rf: the RouteFinder object to be visualised i.e.
      * a maze with progress
@@ -64,64 +92,119 @@ public class VisualMaze{
     public VisualMaze(RouteFinder rf){
         this.rf = rf;
         this.maze = rf.getMaze();
-        try { this.createTiles(); }
+        // the image width leaves room for a column, as it always has
+        this.tileHeight = tileSize(DISPLAY_HEIGHT, this.maze.getHeight());
+        this.tileWidth = tileSize(DISPLAY_WIDTH, this.maze.getWidth() + 1);
+        if(this.maze.getCellCount() > CANVAS_THRESHOLD 
+            || this.tileWidth == 0 || this.tileHeight == 0){
+            this.canvas = new CanvasMaze(rf, DISPLAY_WIDTH, DISPLAY_HEIGHT);
+            this.tiles = new Group(this.canvas.getCanvas());
+        }
+        else try { this.createTiles(); }
         catch (FileNotFoundException e){
             System.out.println("Fatal: Cannot retrieve images.");
         }
+        this.listen();
+    }
+
+    /** Makes the RouteFinder report its changes to this VisualMaze
+     * again, e.g. after a SolveWorker has been collecting them
+     */
+    void listen(){
+        synchronized(this.rf){
+            this.rf.setListener(new Redraw());
+        }
+    }
+
+    /** Works out the size of a tile image along one side: the
+     * display size divided by the tile count, rounded up to a
+     * multiple of 5 if the tiles still fit and down otherwise
+     * 
+     * @param display: the display size in pixels
+     * @param count: the number of tiles along that side
+     * @return The size in pixels, or 0 if it would be less
+     * than MIN_TILE
+     */
+    static int tileSize(int display, int count){
+        int size = display / count;
+        if(size < MIN_TILE)
+            return 0;
+        int rounded = (size+4)/5*5;
+        if(rounded * count > display)
+            rounded = size/5*5;
+        return rounded >= MIN_TILE? rounded : size;
     }
 
-    /** The method that refreshes the group and the tiles
+    /** The method that creates the group and the tiles, at the
+     * tile size the constructor worked out
      * 
      * @throws FileNotFoundException If it cannot access
      * resources/images/*.jpg
      */
     private void createTiles() throws FileNotFoundException{
-        // the image height is a rounded division between
-        // the display height and the row count
-        int height = DISPLAY_HEIGHT / (this.getMaze().getTiles().size());
-        height = (height+4)/5*5;
-
-        // the image width is a rounded division between
-        // the display width and the row length
-        int width = DISPLAY_WIDTH / (this.getMaze().getTiles().get(0).size()+1);
-        width = (width+4)/5*5;
-        double x = 0;
-        double y = 0;
-
-        // reset the images and read the string representation
-        // of the RouteFinder line by line
+        // one image per cell, in the order of the cell indices
         this.tileImages = new ArrayList<List<ImageView>>();
-        String[] lines = this.getRouteFinder().toString().split("\n");
-        for(String line: lines){
+        this.tiles = new Group();
+        int index = 0;
+        for(int y = 0; y < this.getMaze().getHeight(); y++){
             List<ImageView> tileRow = new ArrayList<ImageView>();
-            for(char c: line.toCharArray()){
-                // then for each char create an image corresponding
-                // to the type
-                tileRow.add(imageViewFromChar(c, x, y, width, height));
-                x = (x + 1) % this.getMaze().getTiles().get(0).size();
+            for(int x = 0; x < this.getMaze().getWidth(); x++){
+                ImageView imgv = imageViewFromChar(this.charAt(index++), 
+                    x, y, this.tileWidth, this.tileHeight);
+                tileRow.add(imgv);
+                this.tiles.getChildren().add(imgv);
             }
             this.tileImages.add(tileRow);
-            y += 1;
         }
+    }
 
-        // set the head image to be the avatar if on the path or
-        // the open chest if at the end
-        Coordinate c = this.getMaze().getTileLocation(this.rf.getHead());
-        int xh = this.getMaze().getTiles().size() - c.getY() - 1;
-        int yh = c.getX();
-        char ch = this.rf.getHead().getType() == Type.EXIT? 'f' : 'e';
-
-        ImageView headImage = imageViewFromChar(ch, yh, xh, width, height);
-        tileImages.get(xh).set(yh, headImage);
-
-        // and group the images up for easy display
-        tiles = new Group();
+    /** Works out how a cell is drawn: the head as the avatar, or
+     * the open chest if it is at the exit, then the wrong path and
+     * visited markers, then the tile type
+     * @param index: the index of the cell
+     * @return The character representation of the cell
+     * @see maze.visualisation.TilePalette#stateOf
+     */
+    private char charAt(int index){
+        return TilePalette.stateOf(this.rf, index);
+    }
 
-        for(List<ImageView> imageRow: this.tileImages)
-            for(ImageView imgv: imageRow){
-                this.tiles.getChildren().add(imgv);
+    /** Redraws a batch of changed cells. On the canvas a batch
+     * larger than the viewport is drawn as a whole viewport instead.
+     * @param cells: the indices of the cells
+     * @param count: the number of cells in the batch
+     */
+    void redraw(int[] cells, int count){
+        synchronized(this.rf){
+            if(this.canvas != null && count > this.canvas.getVisibleCells()){
+                this.canvas.draw();
+                return;
             }
+            for(int i = 0; i < count; i++)
+                this.redraw(cells[i]);
         }
+    }
+
+    /** Swaps the image of one cell for its current one, or draws
+     * it on the canvas
+     * @param index: the index of the cell, or -1 for none
+     */
+    private void redraw(int index){
+        if(index < 0)
+            return;
+        if(this.canvas != null){
+            this.canvas.drawCell(index);
+            return;
+        }
+        int width = this.getMaze().getWidth();
+        ImageView imgv = this.tileImages.get(index / width).get(index % width);
+        try{
+            imgv.setImage(TileImages.get(this.charAt(index), 
+                this.tileWidth, this.tileHeight));
+        } catch(FileNotFoundException e){
+            System.out.println("Fatal: Cannot retrieve images.");
+        }
+    }
 
     /** Parses a JavaFX ImageView from the given character
      * @param c: the character representation of the tile
@@ -129,16 +212,15 @@ public class VisualMaze{
      * @param y: the distance from the top of the group
      * @param width: the width of the resulting image
      * @param height: the height of the resulting image
-     * @return a new ImageView object with the specified parameters
+     * @return a new ImageView object with the specified parameters,
+     * showing the cached image for the character and size
      * @throws FileNotFoundException If the application cannot
      * access resources/images/*.jpg
      */
     private ImageView imageViewFromChar(char c, double x, double y, int width, int height)
         throws FileNotFoundException{
-        String path = Tile.charToImage(c);
-        FileInputStream fistream = new FileInputStream(path);
-        Image img = new Image(new FileInputStream(path));
-        ImageView imgv = new ImageView(img);
+        // the image is shared, only the view is new
+        ImageView imgv = new ImageView(TileImages.get(c, width, height));
 
         imgv.setFitWidth(width);
         imgv.setFitHeight(height);
@@ -148,18 +230,14 @@ public class VisualMaze{
         return imgv;
     }
 
-    /** Moves one step through the maze and updates the images.
-     * If along the path an image cannot be resolved the
-     * application meets a fatal error and it cannot proceed.
-     * This can only happen during abnormal loading. 
+    /** Moves one step through the maze. The RouteFinder reports
+     * the cells the step changed, at most two, and only their
+     * images are updated, in place, so the group stays the same.
      * @throws NoRouteFoundException If the maze is unsolvable
      */
     public void step() throws NoRouteFoundException{
-        try{
+        synchronized(this.rf){
             this.getRouteFinder().step();
-            this.createTiles();
-        } catch(FileNotFoundException e){
-            System.out.println("Fatal: Cannot retrieve images.");
         }
     }
 
@@ -177,4 +255,21 @@ public class VisualMaze{
     public RouteFinder getRouteFinder(){
         return this.rf;
     }
+
+    /** Redraws the cells the RouteFinder reports as changed */
+    private class Redraw implements RouteListener{
+
+        public void tileVisited(int index){
+            redraw(index);
+        }
+
+        public void tileLeft(int index){
+            redraw(index);
+        }
+
+        public void headMoved(int from, int to){
+            redraw(from);
+            redraw(to);
+        }
+    }
 }
\ No newline at end of file